@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmFacetIndex;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Горячие пути каталога фильмов: полный список, поиск по ID, популярное, рекомендации и лайки
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class FilmBenchmark {
+    private static final int POPULAR_COUNT = 10;
+    private static final int SEARCH_PAGE_SIZE = 20;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(7);
+        private long nextFilm;
+
+        long randomFilm(FilmorateDataset dataset) {
+            return 1 + random.nextInt(dataset.films);
+        }
+
+        long randomUser(FilmorateDataset dataset) {
+            return 1 + random.nextInt(dataset.users);
+        }
+
+        // Фильмы перебираются по кругу, чтобы лайк не попадал в одну и ту же строку
+        long nextFilm(FilmorateDataset dataset) {
+            nextFilm = nextFilm % dataset.films + 1;
+            return nextFilm;
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Collection<Film> dbFindAll(FilmorateDataset dataset) {
+        return dataset.filmDbStorage.findAll();
+    }
+
+    @Benchmark
+    public Optional<Film> dbFindById(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.filmDbStorage.findById(cursor.randomFilm(dataset));
+    }
+
+    @Benchmark
+    public Collection<Film> inMemoryFindAll(FilmorateDataset dataset) {
+        return dataset.inMemoryFilmStorage.findAll();
+    }
+
+    @Benchmark
+    public Optional<Film> inMemoryFindById(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.inMemoryFilmStorage.findById(cursor.randomFilm(dataset));
+    }
+
+    // Популярное запросом к БД по счетчику like_count
+    @Benchmark
+    public List<Film> dbPopular(FilmorateDataset dataset) {
+        return dataset.filmDbStorage.getPopularFilms(POPULAR_COUNT);
+    }
+
+    // Популярное в хранилище в памяти: выбор топа кучей по всему каталогу
+    @Benchmark
+    public List<Film> inMemoryPopular(FilmorateDataset dataset) {
+        return dataset.inMemoryFilmStorage.getPopularFilms(POPULAR_COUNT);
+    }
+
+    // Популярное через индекс в памяти и догрузку фильмов по ID
+    @Benchmark
+    public List<Film> servicePopular(FilmorateDataset dataset) {
+        return dataset.filmService.getPopularFilms(POPULAR_COUNT);
+    }
+
+    // Топ жанра и топ жанра за год из отдельных рейтингов в памяти, без догрузки фильмов
+    @Benchmark
+    public List<Long> genrePopularIds(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.popularityIndex.top(POPULAR_COUNT, cursor.randomFilm(dataset) % 6 + 1, null);
+    }
+
+    @Benchmark
+    public List<Long> genreYearPopularIds(FilmorateDataset dataset, Cursor cursor) {
+        long genreId = cursor.randomFilm(dataset) % 6 + 1;
+        return dataset.popularityIndex.top(POPULAR_COUNT, genreId, 1900 + (int) (cursor.randomFilm(dataset) % 125));
+    }
+
+    // Похожие фильмы и рекомендации: только ранжирование в индексе, без догрузки фильмов
+    @Benchmark
+    public List<Long> similarFilms(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.similarityIndex.similar(cursor.randomFilm(dataset), POPULAR_COUNT);
+    }
+
+    @Benchmark
+    public List<Long> recommendations(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.similarityIndex.recommend(cursor.randomUser(dataset), POPULAR_COUNT);
+    }
+
+    // Поиск: слово «фильм» есть в названии каждого фильма — худший случай слияния списков.
+    // В поиск через сервис входит догрузка страницы из БД; в наборе на нее попадают фильмы
+    // с малыми ID, у которых больше всего лайков
+    @Benchmark
+    public List<Long> searchCommonWord(FilmorateDataset dataset) {
+        return dataset.searchIndex.search("фильм", 0, SEARCH_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Film> serviceSearch(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.filmService.searchFilms("фильм " + cursor.randomFilm(dataset), 0, SEARCH_PAGE_SIZE);
+    }
+
+    // Фасеты: пересечение карт жанра и десятилетия и счетчики по всем значениям, без догрузки фильмов
+    @Benchmark
+    public FilmFacetIndex.Selection facetSelect(FilmorateDataset dataset, Cursor cursor) {
+        long genreId = cursor.randomFilm(dataset) % 6 + 1;
+        int decade = 1900 + 10 * (int) (cursor.randomFilm(dataset) % 12);
+        return dataset.facetIndex.select(genreId, null, decade, decade + 9, 0, SEARCH_PAGE_SIZE);
+    }
+
+    // Лайк и его отмена, чтобы данные не менялись между итерациями
+    @Benchmark
+    public void addAndRemoveLike(FilmorateDataset dataset, Cursor cursor) {
+        long filmId = cursor.nextFilm(dataset);
+        dataset.filmService.addLike(filmId, dataset.benchUserId);
+        dataset.filmService.removeLike(filmId, dataset.benchUserId);
+    }
+}
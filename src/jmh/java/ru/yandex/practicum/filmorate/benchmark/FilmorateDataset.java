@@ -0,0 +1,224 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.service.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.service.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.service.FriendshipIndex;
+import ru.yandex.practicum.filmorate.service.LikeWriteBehindQueue;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Синтетический набор данных во встроенной H2: фильмы, лайки со степенным распределением
+// популярности и граф дружбы с небольшим числом пользователей-«хабов».
+// Размеры задаются параметрами JMH, например -p films=10000 -p likes=100000.
+// С матрицей совместных лайков набор по умолчанию занимает около 1,6 ГБ кучи, поэтому форки — с -Xmx3g
+@State(Scope.Benchmark)
+public class FilmorateDataset {
+    private static final int BATCH_SIZE = 10_000;
+    private static final long SEED = 42;
+
+    @Param("100000")
+    public int films;
+
+    @Param("1000000")
+    public int likes;
+
+    @Param("50000")
+    public int users;
+
+    @Param("20")
+    public int avgFriends;
+
+    HikariDataSource dataSource;
+    JdbcTemplate jdbcTemplate;
+
+    FilmDbStorage filmDbStorage;
+    UserDbStorage userDbStorage;
+    FilmService filmService;
+    FilmPopularityIndex popularityIndex;
+    FilmSimilarityIndex similarityIndex;
+    FilmSearchIndex searchIndex;
+    FilmFacetIndex facetIndex;
+    FriendshipIndex friendshipIndex;
+    UserService userService;
+    InMemoryFilmStorage inMemoryFilmStorage;
+    InMemoryUserStorage inMemoryUserStorage;
+
+    // Пользователь без лайков, от имени которого бенчмарк ставит и снимает лайки
+    long benchUserId;
+    // Пользователи с наибольшим числом друзей — худший случай для общих друзей
+    long[] heavyUsers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:filmorate-bench;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // Схема и справочники — теми же миграциями, что и в приложении
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        Random random = new Random(SEED);
+        seedUsers();
+        seedFilms(random);
+        seedLikes(random);
+        seedFriendships(random);
+
+        MpaDbStorage mpaDbStorage = new MpaDbStorage(jdbcTemplate);
+        mpaDbStorage.refresh();
+        GenreDbStorage genreDbStorage = new GenreDbStorage(jdbcTemplate);
+        genreDbStorage.refresh();
+        filmDbStorage = new FilmDbStorage(jdbcTemplate, genreDbStorage, mpaDbStorage, false);
+        userDbStorage = new UserDbStorage(jdbcTemplate, false);
+
+        popularityIndex = new FilmPopularityIndex(filmDbStorage);
+        popularityIndex.rebuild();
+        friendshipIndex = new FriendshipIndex(userDbStorage, 100_000);
+        friendshipIndex.rebuild();
+        similarityIndex = new FilmSimilarityIndex(filmDbStorage, 500, 50);
+        similarityIndex.rebuild();
+        searchIndex = new FilmSearchIndex(filmDbStorage);
+        searchIndex.rebuild();
+        facetIndex = new FilmFacetIndex(filmDbStorage);
+        facetIndex.rebuild();
+        filmService = new FilmService(filmDbStorage, popularityIndex, similarityIndex, searchIndex, facetIndex,
+                new DefaultListableBeanFactory().getBeanProvider(LikeWriteBehindQueue.class), 500);
+        userService = new UserService(userDbStorage, friendshipIndex);
+
+        inMemoryUserStorage = new InMemoryUserStorage();
+        userDbStorage.forEach(inMemoryUserStorage::create);
+        inMemoryFilmStorage = new InMemoryFilmStorage(mpaDbStorage, genreDbStorage, inMemoryUserStorage);
+        filmDbStorage.forEach(inMemoryFilmStorage::create);
+        jdbcTemplate.query("SELECT film_id, user_id FROM likes", rs -> {
+            inMemoryFilmStorage.addLike(rs.getLong("film_id"), rs.getLong("user_id"));
+        });
+
+        heavyUsers = jdbcTemplate.queryForList("SELECT user_id FROM friendships " +
+                        "GROUP BY user_id ORDER BY COUNT(*) DESC LIMIT 16", Long.class)
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.close();
+    }
+
+    private void seedUsers() {
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        // Последний пользователь не получает ни лайков, ни друзей
+        for (int i = 1; i <= users + 1; i++) {
+            batch.add(new Object[]{"user" + i + "@bench.local", "user" + i, "User " + i,
+                    Date.valueOf(LocalDate.of(1970 + i % 40, 1 + i % 12, 1 + i % 28))});
+            flushIfFull("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", batch);
+        }
+        flush("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", batch);
+        benchUserId = users + 1;
+    }
+
+    private void seedFilms(Random random) {
+        String filmSql = "INSERT INTO film (name, description, release_date, duration, mpa_rating_id) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 1; i <= films; i++) {
+            batch.add(new Object[]{"Фильм " + i, "Описание фильма " + i,
+                    Date.valueOf(LocalDate.of(1900 + random.nextInt(125), 1 + random.nextInt(12), 1)),
+                    60 + random.nextInt(120), 1 + random.nextInt(5)});
+            flushIfFull(filmSql, batch);
+        }
+        flush(filmSql, batch);
+
+        String genreSql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        for (int filmId = 1; filmId <= films; filmId++) {
+            int first = 1 + random.nextInt(6);
+            batch.add(new Object[]{filmId, first});
+            if (random.nextBoolean()) {
+                batch.add(new Object[]{filmId, 1 + first % 6});
+            }
+            flushIfFull(genreSql, batch);
+        }
+        flush(genreSql, batch);
+    }
+
+    // Популярность фильмов подчиняется степенному закону: малые ID получают большую часть лайков
+    private void seedLikes(Random random) {
+        String sql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        int perUser = Math.max(1, likes / users);
+        Set<Integer> liked = new HashSet<>();
+        for (int userId = 1; userId <= users; userId++) {
+            liked.clear();
+            for (int i = 0; i < perUser; i++) {
+                int filmId = 1 + (int) (films * Math.pow(random.nextDouble(), 3));
+                if (liked.add(filmId)) {
+                    batch.add(new Object[]{filmId, userId});
+                    flushIfFull(sql, batch);
+                }
+            }
+        }
+        flush(sql, batch);
+        jdbcTemplate.update("UPDATE film SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = film.id)");
+    }
+
+    // Число друзей распределено по Парето, а выбор друзей смещен к малым ID — получаются «хабы»
+    private void seedFriendships(Random random) {
+        String sql = "INSERT INTO friendships (user_id, friend_id, status) VALUES (?, ?, 'CONFIRMED')";
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        Set<Integer> friends = new HashSet<>();
+        for (int userId = 1; userId <= users; userId++) {
+            friends.clear();
+            int degree = (int) Math.min(users - 1,
+                    avgFriends * 0.5 / Math.pow(1 - random.nextDouble(), 0.7));
+            for (int i = 0; i < degree; i++) {
+                int friendId = 1 + (int) (users * Math.pow(random.nextDouble(), 2));
+                if (friendId != userId && friends.add(friendId)) {
+                    batch.add(new Object[]{userId, friendId});
+                    flushIfFull(sql, batch);
+                }
+            }
+        }
+        flush(sql, batch);
+    }
+
+    private void flushIfFull(String sql, List<Object[]> batch) {
+        if (batch.size() >= BATCH_SIZE) {
+            flush(sql, batch);
+        }
+    }
+
+    private void flush(String sql, List<Object[]> batch) {
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Горячие пути пользователей: полный список, поиск по ID, друзья, общие и возможные друзья
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class UserBenchmark {
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private final SplittableRandom random = new SplittableRandom(11);
+
+        long randomUser(FilmorateDataset dataset) {
+            return 1 + random.nextInt(dataset.users);
+        }
+
+        long heavyUser(FilmorateDataset dataset) {
+            return dataset.heavyUsers[random.nextInt(dataset.heavyUsers.length)];
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Collection<User> dbFindAll(FilmorateDataset dataset) {
+        return dataset.userDbStorage.findAll();
+    }
+
+    @Benchmark
+    public Optional<User> dbFindById(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.userDbStorage.findById(cursor.randomUser(dataset));
+    }
+
+    @Benchmark
+    public Collection<User> inMemoryFindAll(FilmorateDataset dataset) {
+        return dataset.inMemoryUserStorage.findAll();
+    }
+
+    @Benchmark
+    public Optional<User> inMemoryFindById(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.inMemoryUserStorage.findById(cursor.randomUser(dataset));
+    }
+
+    @Benchmark
+    public List<User> serviceFriends(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.userService.getFriends(cursor.heavyUser(dataset));
+    }
+
+    // Общие друзья самых связанных пользователей запросом к БД
+    @Benchmark
+    public List<User> dbCommonFriends(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.userDbStorage.getCommonFriends(cursor.heavyUser(dataset), cursor.heavyUser(dataset));
+    }
+
+    // То же через пересечение списков в индексе дружбы
+    @Benchmark
+    public List<User> serviceCommonFriends(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.userService.getCommonFriends(cursor.heavyUser(dataset), cursor.heavyUser(dataset));
+    }
+
+    @Benchmark
+    public long[] friendSuggestions(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.friendshipIndex.suggestions(cursor.randomUser(dataset), 10);
+    }
+
+    // Худший случай: у «хабов» обход упирается в лимит связей
+    @Benchmark
+    public long[] heavyFriendSuggestions(FilmorateDataset dataset, Cursor cursor) {
+        return dataset.friendshipIndex.suggestions(cursor.heavyUser(dataset), 10);
+    }
+}
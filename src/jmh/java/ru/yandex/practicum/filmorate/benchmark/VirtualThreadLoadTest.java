@@ -0,0 +1,284 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.tools.Server;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.jdbc.ConnectionLimitingDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Нагрузочное сравнение платформенных и виртуальных потоков веб-слоя: приложение поднимается
+// дважды (spring.threads.virtual.enabled=false/true) поверх H2 в режиме TCP-сервера, как в профиле prod,
+// и на каждом уровне конкурентности клиенты на виртуальных потоках крутят смесь чтений
+// GET /films/{id}, /films/popular и /users/{id}/friends. Параметры — key=value, например
+// mvn -Pjmh test-compile exec:exec@load-test -Dload.args="concurrency=50,400,2000 duration=10 pool=10"
+public class VirtualThreadLoadTest {
+    private static final String[] MODES = {"platform", "virtual"};
+
+    private final int[] concurrencyLevels;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int poolSize;
+    private final int films;
+    private final int users;
+    private final int friendsPerUser;
+    private final int likes;
+
+    private VirtualThreadLoadTest(Map<String, String> args) {
+        concurrencyLevels = Arrays.stream(args.getOrDefault("concurrency", "50,400,2000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        durationSeconds = Integer.parseInt(args.getOrDefault("duration", "10"));
+        warmupSeconds = Integer.parseInt(args.getOrDefault("warmup", "5"));
+        poolSize = Integer.parseInt(args.getOrDefault("pool", "10"));
+        films = Integer.parseInt(args.getOrDefault("films", "2000"));
+        users = Integer.parseInt(args.getOrDefault("users", "2000"));
+        friendsPerUser = Integer.parseInt(args.getOrDefault("friends", "20"));
+        likes = Integer.parseInt(args.getOrDefault("likes", "5000"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            options.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+        new VirtualThreadLoadTest(options).run();
+    }
+
+    private void run() throws Exception {
+        int dbPort = freePort();
+        Server dbServer = Server.createTcpServer("-tcp", "-tcpPort", String.valueOf(dbPort), "-ifNotExists").start();
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-8s %6s %10s %9s %9s %9s %8s %9s %9s",
+                "mode", "conc", "req/s", "p50 ms", "p99 ms", "max ms", "errors", "db peak", "threads"));
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build()) {
+            for (String mode : MODES) {
+                try (ConfigurableApplicationContext context = start(mode, dbPort)) {
+                    String baseUrl = "http://localhost:"
+                            + ((WebServerApplicationContext) context).getWebServer().getPort();
+                    ConnectionLimitingDataSource limiter = context.getBean(DataSource.class)
+                            .unwrap(ConnectionLimitingDataSource.class);
+                    new Seeder(client, baseUrl).seed();
+                    drive(client, baseUrl, concurrencyLevels[0], warmupSeconds);
+
+                    for (int concurrency : concurrencyLevels) {
+                        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+                        threads.resetPeakThreadCount();
+                        int peakBefore = limiter.getPeakInUse();
+                        Result result = drive(client, baseUrl, concurrency, durationSeconds);
+                        report.add(String.format("%-8s %6d %10.0f %9.1f %9.1f %9.1f %8d %9s %9d",
+                                mode, concurrency, result.throughput(), result.percentile(0.5),
+                                result.percentile(0.99), result.percentile(1.0), result.errors(),
+                                Math.max(peakBefore, limiter.getPeakInUse()) + "/" + limiter.getPermitCount(),
+                                threads.getPeakThreadCount()));
+                        System.out.println(report.get(report.size() - 1));
+                    }
+                }
+            }
+        } finally {
+            dbServer.stop();
+        }
+
+        System.out.println();
+        System.out.println("CPU: " + Runtime.getRuntime().availableProcessors() + ", пул соединений: " + poolSize
+                + ", длительность уровня: " + durationSeconds + " с");
+        report.forEach(System.out::println);
+    }
+
+    // Аргументы командной строки, а не properties() билдера: те имеют низший приоритет
+    // и проигрывают application.properties из тестового classpath
+    private ConfigurableApplicationContext start(String mode, int dbPort) {
+        return new SpringApplicationBuilder(FilmorateApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                "--spring.datasource.url=jdbc:h2:tcp://localhost:" + dbPort + "/mem:load-" + mode
+                        + ";DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "--spring.datasource.hikari.minimum-idle=" + poolSize,
+                "--spring.flyway.enabled=true",
+                "--spring.h2.console.enabled=false",
+                "--spring.jpa.open-in-view=false",
+                "--filmorate.storage=db",
+                "--filmorate.jdbc.limiter.acquire-timeout-ms=5000",
+                "--logging.level.root=WARN",
+                "--logging.level.ru.yandex.practicum.filmorate=ERROR");
+    }
+
+    // Клиенты работают фиксированное время; задержки каждого копятся в своем массиве
+    private Result drive(HttpClient client, String baseUrl, int concurrency, int seconds) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicInteger errors = new AtomicInteger();
+        List<Future<long[]>> futures = new ArrayList<>(concurrency);
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + nextPath(random)))
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        long requestStarted = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - requestStarted;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+
+        long[][] parts = new long[futures.size()][];
+        int total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = futures.get(i).get();
+            total += parts[i].length;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (long[] part : parts) {
+            System.arraycopy(part, 0, all, offset, part.length);
+            offset += part.length;
+        }
+        Arrays.sort(all);
+        return new Result(all, errors.get(), elapsed);
+    }
+
+    private String nextPath(ThreadLocalRandom random) {
+        int choice = random.nextInt(4);
+        if (choice < 2) {
+            return "/films/" + (random.nextInt(films) + 1);
+        }
+        if (choice == 2) {
+            return "/films/popular?count=10";
+        }
+        return "/users/" + (random.nextInt(users) + 1) + "/friends";
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Result(long[] sortedLatencies, int errors, long elapsedNanos) {
+        double throughput() {
+            return sortedLatencies.length / (elapsedNanos / 1e9);
+        }
+
+        double percentile(double quantile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(quantile * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    // Данные заливаются через HTTP теми же пакетными ручками, что и в эксплуатации
+    private final class Seeder {
+        private final HttpClient client;
+        private final String baseUrl;
+        private final Random random = new Random(42);
+
+        private Seeder(HttpClient client, String baseUrl) {
+            this.client = client;
+            this.baseUrl = baseUrl;
+        }
+
+        void seed() throws Exception {
+            StringBuilder filmsNdjson = new StringBuilder();
+            for (int i = 1; i <= films; i++) {
+                filmsNdjson.append(String.format(
+                        "{\"name\":\"Фильм %d\",\"description\":\"Описание %d\",\"releaseDate\":\"%d-01-01\","
+                                + "\"duration\":%d,\"mpa\":{\"id\":%d},\"genres\":[{\"id\":%d}]}%n",
+                        i, i, 1950 + i % 70, 60 + i % 120, i % 5 + 1, i % 6 + 1));
+            }
+            post("/films/batch", "application/x-ndjson", filmsNdjson.toString());
+
+            StringBuilder usersCsv = new StringBuilder("type,id,email,login,name,birthday\n");
+            for (int i = 1; i <= users; i++) {
+                usersCsv.append(String.format("user,%d,user%d@mail.ru,user%d,User %d,1990-01-01%n", i, i, i, i));
+            }
+            for (int i = 1; i <= users; i++) {
+                for (int j = 0; j < friendsPerUser; j++) {
+                    int friend = random.nextInt(users) + 1;
+                    if (friend != i) {
+                        usersCsv.append(String.format("friend,%d,%d%n", i, friend));
+                    }
+                }
+            }
+            post("/users/import", "text/csv", usersCsv.toString());
+
+            // Пары без повторов, популярность фильмов убывает степенно; лайки ставятся параллельно
+            Set<Long> pairs = new HashSet<>();
+            while (pairs.size() < Math.min(likes, (long) films * users)) {
+                long film = (long) Math.min(films, Math.floor(films * Math.pow(random.nextDouble(), 3)) + 1);
+                long user = random.nextInt(users) + 1;
+                pairs.add(film * (users + 1) + user);
+            }
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (long pair : pairs) {
+                    URI uri = URI.create(baseUrl + "/films/" + pair / (users + 1) + "/like/" + pair % (users + 1));
+                    executor.submit(() -> client.send(HttpRequest.newBuilder(uri)
+                            .PUT(HttpRequest.BodyPublishers.noBody())
+                            .build(), HttpResponse.BodyHandlers.discarding()));
+                }
+            }
+        }
+
+        private void post(String path, String contentType, String body) throws Exception {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", contentType)
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Наполнение " + path + ": " + response.statusCode() + " " + response.body());
+            }
+        }
+    }
+}
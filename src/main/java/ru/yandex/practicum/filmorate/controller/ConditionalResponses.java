@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Условные GET по строгому ETag: версия сравнивается с If-None-Match до чтения данных
+// и сериализации, при совпадении клиент получает 304 без тела
+final class ConditionalResponses {
+
+    private ConditionalResponses() {
+    }
+
+    static <T> ResponseEntity<T> ifNoneMatch(WebRequest request, String version,
+                                             CacheControl cacheControl, Supplier<T> body) {
+        String etag = "\"" + version + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(body.get());
+    }
+
+    // Данные, которые меняются в любой момент: кэш обязан перепроверять ETag после maxAge
+    static CacheControl revalidate(long maxAgeSeconds) {
+        return CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).mustRevalidate().cachePublic();
+    }
+
+    // Справочники: меняются только миграциями
+    static CacheControl reference(long maxAgeSeconds) {
+        return CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
+    }
+}
@@ -1,25 +1,43 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPage;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
 import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Validated
 @RestController
@@ -28,33 +46,98 @@ import java.util.List;
 public class FilmController {
     private final FilmStorage filmStorage;
     private final FilmService filmService;
+    private final RecommendationService recommendationService;
     private final MpaDbStorage mpaDbStorage;
     private final GenreDbStorage genreDbStorage;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int maxImportSize;
+    private final CacheControl cacheControl;
 
     private static final String LIKE_PATH = "/{id}/like/{userId}";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_RECOMMENDATIONS = 100;
+    private static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_OFFSET = 1000;
 
     @Autowired
-    public FilmController(@Qualifier("filmDbStorage") FilmStorage filmStorage,
+    public FilmController(FilmStorage filmStorage,
                           FilmService filmService,
+                          RecommendationService recommendationService,
                           MpaDbStorage mpaDbStorage,
-                          GenreDbStorage genreDbStorage) {
+                          GenreDbStorage genreDbStorage,
+                          ObjectMapper objectMapper,
+                          Validator validator,
+                          @Value("${filmorate.import.max-size:10000}") int maxImportSize,
+                          @Value("${filmorate.http.cache.catalog-max-age-seconds:0}") long maxAgeSeconds) {
         this.filmStorage = filmStorage;
         this.filmService = filmService;
+        this.recommendationService = recommendationService;
         this.mpaDbStorage = mpaDbStorage;
         this.genreDbStorage = genreDbStorage;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.maxImportSize = maxImportSize;
+        this.cacheControl = ConditionalResponses.revalidate(maxAgeSeconds);
     }
 
     @GetMapping
-    public Collection<Film> findAll() {
-        log.info("Получен запрос на получение всех фильмов");
-        return filmStorage.findAll();
+    public Collection<Film> findAll(
+            @RequestParam(required = false)
+            @PositiveOrZero(message = "Параметр after должен быть неотрицательным") Long after,
+            @RequestParam(required = false)
+            @Min(value = 1, message = "Параметр limit должен быть не менее 1")
+            @Max(value = MAX_PAGE_SIZE, message = "Параметр limit должен быть не более " + MAX_PAGE_SIZE) Integer limit) {
+        if (after == null && limit == null) {
+            log.info("Получен запрос на получение всех фильмов");
+            return filmStorage.findAll();
+        }
+
+        long afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        log.info("Получен запрос на получение фильмов после ID {}, не более {}", afterId, pageSize);
+        return filmStorage.findPage(afterId, pageSize);
+    }
+
+    // Фильтрация по жанру, рейтингу MPA и диапазону лет: страница по ключу after с общим числом
+    // подходящих фильмов и счетчиками по жанрам, рейтингам и годам. Отсутствующий фильтр не ограничивает
+    @GetMapping("/browse")
+    public FilmPage browse(
+            @RequestParam(required = false)
+            @Positive(message = "ID жанра должен быть положительным числом") Long genre,
+            @RequestParam(required = false)
+            @Positive(message = "ID рейтинга MPA должен быть положительным числом") Long mpa,
+            @RequestParam(required = false) Integer yearFrom,
+            @RequestParam(required = false) Integer yearTo,
+            @RequestParam(defaultValue = "0")
+            @PositiveOrZero(message = "Параметр after должен быть неотрицательным") long after,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE)
+            @Min(value = 1, message = "Параметр limit должен быть не менее 1")
+            @Max(value = MAX_PAGE_SIZE, message = "Параметр limit должен быть не более " + MAX_PAGE_SIZE) int limit) {
+        log.info("Получен запрос на фильмы с жанром {}, рейтингом {}, годами {}-{} после ID {}, не более {}",
+                genre, mpa, yearFrom, yearTo, after, limit);
+        return filmService.browseFilms(genre, mpa, yearFrom, yearTo, after, limit);
     }
 
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.info("Получен запрос на потоковую выгрузку всех фильмов");
+        return NdjsonResponses.stream(objectMapper, filmStorage::forEach);
+    }
+
+    // ETag по версии фильма: при совпадении читается только номер версии по первичному ключу
     @GetMapping("/{id}")
-    public Film findById(@PathVariable @Positive(message = "ID фильма должен быть положительным числом") Long id) {
+    public ResponseEntity<Film> findById(
+            @PathVariable @Positive(message = "ID фильма должен быть положительным числом") Long id,
+            WebRequest request) {
         log.info("Получен запрос на получение фильма с ID: {}", id);
-        return filmStorage.findById(id)
+        long version = filmStorage.getVersion(id)
                 .orElseThrow(() -> new NotFoundException(String.format("Фильм с ID %d не найден", id)));
+        return ConditionalResponses.ifNoneMatch(request, "film-" + id + "-" + version, cacheControl,
+                () -> filmStorage.findById(id)
+                        .orElseThrow(() -> new NotFoundException(String.format("Фильм с ID %d не найден", id))));
     }
 
     @PostMapping
@@ -63,7 +146,27 @@ public class FilmController {
         validateFilmReleaseDate(film);
         validateFilmMpa(film);
         validateFilmGenres(film);
-        return filmStorage.create(film);
+        return filmService.create(film);
+    }
+
+    // Массовый импорт: JSON-массив или NDJSON. Весь пакет проверяется по справочникам в памяти
+    // до первой вставки, ответ — ID созданных фильмов в порядке следования во входных данных
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<Long> createBatch(InputStream body) throws IOException {
+        List<Film> films = new ArrayList<>();
+        try (MappingIterator<Film> iterator = objectMapper.readerFor(Film.class).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                if (films.size() == maxImportSize) {
+                    throw new ValidationException(String.format(
+                            "В одном пакете не больше %d фильмов", maxImportSize));
+                }
+                Film film = readBatchFilm(iterator, films.size());
+                validateBatchFilm(film, films.size());
+                films.add(film);
+            }
+        }
+        log.info("Получен запрос на импорт {} фильмов", films.size());
+        return filmService.importFilms(films);
     }
 
     @PutMapping
@@ -82,7 +185,14 @@ public class FilmController {
         validateFilmReleaseDate(film);
         validateFilmMpa(film);
         validateFilmGenres(film);
-        return filmStorage.update(film);
+        return filmService.update(film);
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void delete(@PathVariable @Positive(message = "ID фильма должен быть положительным числом") Long id) {
+        log.info("Получен запрос на удаление фильма {}", id);
+        filmService.delete(id);
     }
 
     @PutMapping(LIKE_PATH)
@@ -102,13 +212,78 @@ public class FilmController {
         filmService.removeLike(id, userId);
     }
 
+    // ETag по версии каталога: любой лайк или изменение фильма дают новую версию
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(
+    public ResponseEntity<List<Film>> getPopularFilms(
             @RequestParam(defaultValue = "10")
             @Min(value = 1, message = "Параметр count должен быть не менее 1")
+            int count,
+            @RequestParam(required = false)
+            @Positive(message = "ID жанра должен быть положительным числом") Long genreId,
+            @RequestParam(required = false) Integer year,
+            WebRequest request) {
+        log.info("Получен запрос на получение {} популярных фильмов, жанр {}, год {}", count, genreId, year);
+        if (genreId != null && !genreDbStorage.existsById(genreId)) {
+            throw new NotFoundException(String.format("Жанр с ID %d не найден", genreId));
+        }
+        return ConditionalResponses.ifNoneMatch(request,
+                "popular-" + count + "-" + genreId + "-" + year + "-" + filmStorage.getCatalogVersion(), cacheControl,
+                () -> filmService.getPopularFilms(count, genreId, year));
+    }
+
+    // Поиск по словам названия и описания. Ранжированная выдача листается смещением,
+    // глубина которого ограничена: каждая страница заново собирает offset + limit лучших
+    @GetMapping("/search")
+    public List<Film> search(
+            @RequestParam @NotBlank(message = "Параметр q не должен быть пустым") String q,
+            @RequestParam(defaultValue = "0")
+            @PositiveOrZero(message = "Параметр offset должен быть неотрицательным")
+            @Max(value = MAX_SEARCH_OFFSET, message = "Параметр offset должен быть не более " + MAX_SEARCH_OFFSET)
+            int offset,
+            @RequestParam(defaultValue = "" + DEFAULT_SEARCH_PAGE_SIZE)
+            @Min(value = 1, message = "Параметр limit должен быть не менее 1")
+            @Max(value = MAX_SEARCH_PAGE_SIZE, message = "Параметр limit должен быть не более " + MAX_SEARCH_PAGE_SIZE)
+            int limit) {
+        log.info("Получен запрос на поиск фильмов «{}», смещение {}, не более {}", q, offset, limit);
+        return filmService.searchFilms(q, offset, limit);
+    }
+
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilarFilms(
+            @PathVariable @Positive(message = "ID фильма должен быть положительным числом") Long id,
+            @RequestParam(defaultValue = "10")
+            @Min(value = 1, message = "Параметр count должен быть не менее 1")
+            @Max(value = MAX_RECOMMENDATIONS, message = "Параметр count должен быть не более " + MAX_RECOMMENDATIONS)
             int count) {
-        log.info("Получен запрос на получение {} популярных фильмов", count);
-        return filmService.getPopularFilms(count);
+        log.info("Получен запрос на {} фильмов, похожих на фильм {}", count, id);
+        return recommendationService.getSimilarFilms(id, count);
+    }
+
+    private static Film readBatchFilm(MappingIterator<Film> iterator, int index) {
+        try {
+            return iterator.nextValue();
+        } catch (IOException e) {
+            log.error("Некорректный формат фильма #{} в пакете: {}", index, e.getMessage());
+            throw new ValidationException(String.format("Фильм #%d: некорректный формат данных", index));
+        }
+    }
+
+    // Ошибка в любом элементе отклоняет весь пакет с указанием номера элемента
+    private void validateBatchFilm(Film film, int index) {
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(String.format("Фильм #%d: %s",
+                    index, violations.iterator().next().getMessage()));
+        }
+        try {
+            validateFilmReleaseDate(film);
+            validateFilmMpa(film);
+            validateFilmGenres(film);
+        } catch (ValidationException e) {
+            throw new ValidationException(String.format("Фильм #%d: %s", index, e.getMessage()));
+        } catch (NotFoundException e) {
+            throw new NotFoundException(String.format("Фильм #%d: %s", index, e.getMessage()));
+        }
     }
 
     private void validateFilmReleaseDate(Film film) {
@@ -124,7 +299,7 @@ public class FilmController {
             throw new ValidationException("Рейтинг MPA должен быть указан");
         }
 
-        if (!mpaDbStorage.getMpaById(film.getMpa().getId()).isPresent()) {
+        if (!mpaDbStorage.existsById(film.getMpa().getId())) {
             log.error("MPA рейтинг с ID {} не найден", film.getMpa().getId());
             throw new NotFoundException(String.format("MPA рейтинг с ID %d не найден", film.getMpa().getId()));
         }
@@ -133,7 +308,7 @@ public class FilmController {
     private void validateFilmGenres(Film film) {
         if (film.getGenres() != null && !film.getGenres().isEmpty()) {
             for (var genre : film.getGenres()) {
-                if (!genreDbStorage.getGenreById(genre.getId()).isPresent()) {
+                if (!genreDbStorage.existsById(genre.getId())) {
                     log.error("Жанр с ID {} не найден", genre.getId());
                     throw new NotFoundException(String.format("Жанр с ID %d не найден", genre.getId()));
                 }
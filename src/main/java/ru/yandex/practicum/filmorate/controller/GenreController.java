@@ -2,7 +2,11 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
@@ -15,22 +19,28 @@ import java.util.List;
 public class GenreController {
 
     private final GenreDbStorage genreDbStorage;
+    private final CacheControl cacheControl;
 
     @Autowired
-    public GenreController(GenreDbStorage genreDbStorage) {
+    public GenreController(GenreDbStorage genreDbStorage,
+                           @Value("${filmorate.http.cache.reference-max-age-seconds:3600}") long maxAgeSeconds) {
         this.genreDbStorage = genreDbStorage;
+        this.cacheControl = ConditionalResponses.reference(maxAgeSeconds);
     }
 
     @GetMapping
-    public List<Genre> getAllGenres() {
+    public ResponseEntity<List<Genre>> getAllGenres(WebRequest request) {
         log.info("Получен запрос на получение всех жанров");
-        return genreDbStorage.getAllGenres();
+        return ConditionalResponses.ifNoneMatch(request, "genres-" + genreDbStorage.getVersion(), cacheControl,
+                genreDbStorage::getAllGenres);
     }
 
     @GetMapping("/{id}")
-    public Genre getGenreById(@PathVariable Long id) {
+    public ResponseEntity<Genre> getGenreById(@PathVariable Long id, WebRequest request) {
         log.info("Получен запрос на получение жанра с ID: {}", id);
-        return genreDbStorage.getGenreById(id)
+        Genre found = genreDbStorage.getGenreById(id)
                 .orElseThrow(() -> new NotFoundException(String.format("Жанр с ID %d не найден", id)));
+        return ConditionalResponses.ifNoneMatch(request, "genres-" + genreDbStorage.getVersion(), cacheControl,
+                () -> found);
     }
 }
\ No newline at end of file
@@ -1,8 +1,12 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -11,6 +15,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceOverloadedException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -39,6 +44,19 @@ public class GlobalExceptionHandler {
         return errors;
     }
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> handleConstraintViolation(ConstraintViolationException ex) {
+        Map<String, String> errors = new HashMap<>();
+        String errorMessage = ex.getConstraintViolations().stream()
+                .map(ConstraintViolation::getMessage)
+                .findFirst()
+                .orElse("Некорректные параметры запроса");
+        log.error("Ошибка валидации параметров: {}", errorMessage);
+        errors.put("error", errorMessage);
+        return errors;
+    }
+
     @ExceptionHandler(NotFoundException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public Map<String, String> handleNotFoundException(NotFoundException ex) {
@@ -48,6 +66,25 @@ public class GlobalExceptionHandler {
         return errors;
     }
 
+    @ExceptionHandler(ServiceOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Map<String, String> handleServiceOverloaded(ServiceOverloadedException ex) {
+        Map<String, String> errors = new HashMap<>();
+        log.warn("Сервис перегружен: {}", ex.getMessage());
+        errors.put("error", ex.getMessage());
+        return errors;
+    }
+
+    // Нет свободного соединения с БД за время ожидания ограничителя: запрос можно повторить
+    @ExceptionHandler({CannotGetJdbcConnectionException.class, CannotCreateTransactionException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Map<String, String> handleConnectionUnavailable(Exception ex) {
+        Map<String, String> errors = new HashMap<>();
+        log.warn("Нет соединения с БД: {}", ex.getMessage());
+        errors.put("error", "База данных перегружена, повторите запрос позже");
+        return errors;
+    }
+
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Map<String, String> handleTypeMismatchException(MethodArgumentTypeMismatchException ex) {
@@ -2,7 +2,11 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
@@ -15,22 +19,28 @@ import java.util.List;
 public class MpaController {
 
     private final MpaDbStorage mpaDbStorage;
+    private final CacheControl cacheControl;
 
     @Autowired
-    public MpaController(MpaDbStorage mpaDbStorage) {
+    public MpaController(MpaDbStorage mpaDbStorage,
+                         @Value("${filmorate.http.cache.reference-max-age-seconds:3600}") long maxAgeSeconds) {
         this.mpaDbStorage = mpaDbStorage;
+        this.cacheControl = ConditionalResponses.reference(maxAgeSeconds);
     }
 
     @GetMapping
-    public List<MpaRating> getAllMpaRatings() {
+    public ResponseEntity<List<MpaRating>> getAllMpaRatings(WebRequest request) {
         log.info("Получен запрос на получение всех рейтингов MPA");
-        return mpaDbStorage.getAllMpaRatings();
+        return ConditionalResponses.ifNoneMatch(request, "mpa-" + mpaDbStorage.getVersion(), cacheControl,
+                mpaDbStorage::getAllMpaRatings);
     }
 
     @GetMapping("/{id}")
-    public MpaRating getMpaById(@PathVariable Long id) {
+    public ResponseEntity<MpaRating> getMpaById(@PathVariable Long id, WebRequest request) {
         log.info("Получен запрос на получение рейтинга MPA с ID: {}", id);
-        return mpaDbStorage.getMpaById(id)
+        MpaRating found = mpaDbStorage.getMpaById(id)
                 .orElseThrow(() -> new NotFoundException(String.format("Рейтинг MPA с ID %d не найден", id)));
+        return ConditionalResponses.ifNoneMatch(request, "mpa-" + mpaDbStorage.getVersion(), cacheControl,
+                () -> found);
     }
 }
\ No newline at end of file
@@ -1,19 +1,31 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserImportReport;
+import ru.yandex.practicum.filmorate.service.RecommendationService;
+import ru.yandex.practicum.filmorate.service.UserImportService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 
@@ -24,20 +36,52 @@ import java.util.List;
 public class UserController {
     private final UserStorage userStorage;
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final UserImportService userImportService;
+    private final RecommendationService recommendationService;
 
     private static final String FRIEND_PATH = "/{id}/friends/{friendId}";
     private static final String CONFIRM_FRIEND_PATH = "/{id}/friends/{friendId}/confirm";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_RECOMMENDATIONS = 100;
+    private static final int MAX_SUGGESTIONS = 100;
 
     @Autowired
-    public UserController(@Qualifier("userDbStorage") UserStorage userStorage, UserService userService) {
+    public UserController(UserStorage userStorage,
+                          UserService userService,
+                          ObjectMapper objectMapper,
+                          UserImportService userImportService,
+                          RecommendationService recommendationService) {
         this.userStorage = userStorage;
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.userImportService = userImportService;
+        this.recommendationService = recommendationService;
     }
 
     @GetMapping
-    public Collection<User> findAll() {
-        log.info("Получен запрос на получение всех пользователей");
-        return userStorage.findAll();
+    public Collection<User> findAll(
+            @RequestParam(required = false)
+            @PositiveOrZero(message = "Параметр after должен быть неотрицательным") Long after,
+            @RequestParam(required = false)
+            @Min(value = 1, message = "Параметр limit должен быть не менее 1")
+            @Max(value = MAX_PAGE_SIZE, message = "Параметр limit должен быть не более " + MAX_PAGE_SIZE) Integer limit) {
+        if (after == null && limit == null) {
+            log.info("Получен запрос на получение всех пользователей");
+            return userStorage.findAll();
+        }
+
+        long afterId = after == null ? 0 : after;
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        log.info("Получен запрос на получение пользователей после ID {}, не более {}", afterId, pageSize);
+        return userStorage.findPage(afterId, pageSize);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.info("Получен запрос на потоковую выгрузку всех пользователей");
+        return NdjsonResponses.stream(objectMapper, userStorage::forEach);
     }
 
     @GetMapping("/{id}")
@@ -54,6 +98,20 @@ public class UserController {
         return userStorage.create(user);
     }
 
+    // Потоковый импорт пользователей и связей из выгрузки старой системы; некорректные строки
+    // пропускаются и перечисляются в отчете
+    @PostMapping(path = "/import", consumes = "text/csv")
+    public UserImportReport importCsv(InputStream body) throws IOException {
+        log.info("Получен запрос на импорт пользователей из CSV");
+        return userImportService.importUsers(body, UserImportService.Format.CSV);
+    }
+
+    @PostMapping(path = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public UserImportReport importNdjson(InputStream body) throws IOException {
+        log.info("Получен запрос на импорт пользователей из NDJSON");
+        return userImportService.importUsers(body, UserImportService.Format.NDJSON);
+    }
+
     @PutMapping
     public User update(@Valid @RequestBody User user) {
         log.info("Получен запрос на обновление пользователя: {}", user);
@@ -118,4 +176,26 @@ public class UserController {
         log.info("Получен запрос на получение общих друзей пользователей {} и {}", id, otherId);
         return userService.getCommonFriends(id, otherId);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(
+            @PathVariable @Positive(message = "ID пользователя должен быть положительным числом") Long id,
+            @RequestParam(defaultValue = "10")
+            @Min(value = 1, message = "Параметр count должен быть не менее 1")
+            @Max(value = MAX_SUGGESTIONS, message = "Параметр count должен быть не более " + MAX_SUGGESTIONS)
+            int count) {
+        log.info("Получен запрос на {} возможных друзей для пользователя {}", count, id);
+        return userService.getFriendSuggestions(id, count);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(
+            @PathVariable @Positive(message = "ID пользователя должен быть положительным числом") Long id,
+            @RequestParam(defaultValue = "10")
+            @Min(value = 1, message = "Параметр count должен быть не менее 1")
+            @Max(value = MAX_RECOMMENDATIONS, message = "Параметр count должен быть не более " + MAX_RECOMMENDATIONS)
+            int count) {
+        log.info("Получен запрос на {} рекомендаций для пользователя {}", count, id);
+        return recommendationService.getRecommendations(id, count);
+    }
+}
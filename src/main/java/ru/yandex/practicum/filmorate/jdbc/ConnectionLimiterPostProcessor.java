@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.jdbc;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+// Ставит ConnectionLimitingDataSource перед пулом. Число разрешений по умолчанию равно
+// размеру пула Hikari: в самом пуле тогда никто не ждет, вся очередь — на семафоре
+@Component
+@ConditionalOnProperty(name = "filmorate.jdbc.limiter.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class ConnectionLimiterPostProcessor implements BeanPostProcessor {
+    private static final int HIKARI_DEFAULT_POOL_SIZE = 10;
+
+    private final Environment environment;
+
+    @Autowired
+    public ConnectionLimiterPostProcessor(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource dataSource) || isLimited(dataSource)) {
+            return bean;
+        }
+
+        int permits = environment.getProperty("filmorate.jdbc.limiter.permits", Integer.class, 0);
+        if (permits <= 0) {
+            permits = poolSize(dataSource, beanName);
+        }
+        long acquireTimeoutMs = environment.getProperty("filmorate.jdbc.limiter.acquire-timeout-ms", Long.class, 1000L);
+        log.info("Ограничитель соединений с БД: {} разрешений, ожидание до {} мс", permits, acquireTimeoutMs);
+        return new ConnectionLimitingDataSource(dataSource, permits, acquireTimeoutMs);
+    }
+
+    private static boolean isLimited(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ConnectionLimitingDataSource.class);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static int poolSize(DataSource dataSource, String beanName) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                // До старта пула незаданный размер равен -1, Hikari подставляет свое значение позже
+                int poolSize = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+                return poolSize > 0 ? poolSize : HIKARI_DEFAULT_POOL_SIZE;
+            }
+        } catch (SQLException e) {
+            throw new BeanCreationException(beanName, "Не удалось определить размер пула соединений", e);
+        }
+        throw new BeanCreationException(beanName,
+                "Пул соединений не Hikari: задайте filmorate.jdbc.limiter.permits явно");
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsWebConfig implements WebMvcConfigurer {
+    private final StorageCallsInterceptor storageCallsInterceptor;
+
+    @Autowired
+    public MetricsWebConfig(StorageCallsInterceptor storageCallsInterceptor) {
+        this.storageCallsInterceptor = storageCallsInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(storageCallsInterceptor)
+                .excludePathPatterns("/actuator/**");
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// SQL-статистика текущего HTTP-запроса: число выполненных выражений, суммарное время
+// и разбивка по тексту SQL. Привязана к потоку запроса, фоновые потоки не учитываются
+public final class SqlStats {
+    // Ограничение на число различных SQL в разбивке, чтобы не копить память на длинных запросах
+    private static final int MAX_DISTINCT_STATEMENTS = 100;
+    private static final String OTHER_STATEMENTS = "<прочие выражения>";
+
+    private static final ThreadLocal<SqlStats> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, StatementStats> bySql = new LinkedHashMap<>();
+    private int statementCount;
+    private long totalNanos;
+
+    private SqlStats() {
+    }
+
+    public static SqlStats start() {
+        SqlStats stats = new SqlStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    static void record(String sql, long nanos) {
+        SqlStats stats = CURRENT.get();
+        if (stats == null) {
+            return;
+        }
+
+        stats.statementCount++;
+        stats.totalNanos += nanos;
+        String key = stats.bySql.containsKey(sql) || stats.bySql.size() < MAX_DISTINCT_STATEMENTS
+                ? sql
+                : OTHER_STATEMENTS;
+        stats.bySql.computeIfAbsent(key, StatementStats::new).add(nanos);
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    // Выражения по убыванию суммарного времени
+    public List<StatementStats> getStatements() {
+        return bySql.values().stream()
+                .sorted(Comparator.comparingLong(StatementStats::getTotalNanos).reversed())
+                .toList();
+    }
+
+    public static final class StatementStats {
+        private final String sql;
+        private int count;
+        private long totalNanos;
+
+        private StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        private void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Считает SQL-выражения каждого HTTP-запроса: заголовки X-Db-Statements и X-Db-Time-Ms,
+// метрики по шаблону URI и предупреждение в лог с текстами SQL при превышении порогов
+@Component
+@ConditionalOnProperty(name = "filmorate.sql.stats.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class SqlStatsFilter extends OncePerRequestFilter {
+    static final String STATEMENTS_HEADER = "X-Db-Statements";
+    static final String TIME_HEADER = "X-Db-Time-Ms";
+
+    private static final int LOGGED_STATEMENTS = 10;
+
+    private final MeterRegistry meterRegistry;
+    private final int maxStatements;
+    private final long maxTimeMs;
+
+    @Autowired
+    public SqlStatsFilter(MeterRegistry meterRegistry,
+                          @Value("${filmorate.sql.slow-request.max-statements:20}") int maxStatements,
+                          @Value("${filmorate.sql.slow-request.max-time-ms:200}") long maxTimeMs) {
+        this.meterRegistry = meterRegistry;
+        this.maxStatements = maxStatements;
+        this.maxTimeMs = maxTimeMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        SqlStats stats = SqlStats.start();
+        StatsHeadersResponse wrapped = new StatsHeadersResponse(response, stats);
+        try {
+            filterChain.doFilter(request, wrapped);
+        } finally {
+            SqlStats.stop();
+            wrapped.writeStatsHeaders();
+            record(request, stats);
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+        DistributionSummary.builder("filmorate.sql.statements.per.request")
+                .description("Число SQL-выражений за один HTTP-запрос")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getStatementCount());
+        Timer.builder("filmorate.sql.time.per.request")
+                .description("Суммарное время SQL-выражений за один HTTP-запрос")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getTotalNanos(), TimeUnit.NANOSECONDS);
+
+        long timeMs = TimeUnit.NANOSECONDS.toMillis(stats.getTotalNanos());
+        if (stats.getStatementCount() > maxStatements || timeMs > maxTimeMs) {
+            log.warn("Тяжелый запрос {} {}: {} SQL-выражений, {} мс в БД (пороги {} и {} мс). Выражения:\n{}",
+                    request.getMethod(), request.getRequestURI(), stats.getStatementCount(), timeMs,
+                    maxStatements, maxTimeMs, describe(stats));
+        }
+    }
+
+    private static String describe(SqlStats stats) {
+        return stats.getStatements().stream()
+                .limit(LOGGED_STATEMENTS)
+                .map(statement -> String.format("  %d раз, %d мс: %s", statement.getCount(),
+                        TimeUnit.NANOSECONDS.toMillis(statement.getTotalNanos()), statement.getSql()))
+                .collect(Collectors.joining("\n"));
+    }
+
+    // Заголовки выставляются непосредственно перед началом записи тела, пока ответ не зафиксирован:
+    // к этому моменту обращения к БД у обычного обработчика уже завершены
+    private static final class StatsHeadersResponse extends HttpServletResponseWrapper {
+        private final SqlStats stats;
+        private boolean headersWritten;
+
+        private StatsHeadersResponse(HttpServletResponse response, SqlStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeStatsHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeStatsHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeStatsHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeStatsHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeStatsHeaders();
+            super.sendError(sc);
+        }
+
+        private void writeStatsHeaders() {
+            if (headersWritten || isCommitted()) {
+                return;
+            }
+            headersWritten = true;
+            setHeader(STATEMENTS_HEADER, String.valueOf(stats.getStatementCount()));
+            setHeader(TIME_HEADER, String.valueOf(TimeUnit.NANOSECONDS.toMillis(stats.getTotalNanos())));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Таймер filmorate.storage на каждый публичный метод хранилищ (теги class, method, exception)
+// и подсчет обращений к хранилищам в рамках текущего HTTP-запроса. Чтения из снимков
+// справочников не учитываются: они не обращаются к БД и вызываются на каждую строку выборки,
+// так что счетчик рос бы с размером страницы и скрывал настоящие N+1
+@Aspect
+@Component
+public class StorageMetricsAspect {
+    static final String STORAGE_CALLS_ATTRIBUTE = StorageMetricsAspect.class.getName() + ".storageCalls";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public StorageMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Pointcut("execution(public * ru.yandex.practicum.filmorate.storage..*(..))")
+    void storageMethods() {
+    }
+
+    @Pointcut("(within(ru.yandex.practicum.filmorate.storage.MpaDbStorage) " +
+            "|| within(ru.yandex.practicum.filmorate.storage.GenreDbStorage)) " +
+            "&& (execution(* getAllMpaRatings()) || execution(* getAllGenres()) || execution(* get*ById(Long)) " +
+            "|| execution(* existsById(Long)) || execution(* getVersion()))")
+    void referenceSnapshotReads() {
+    }
+
+    @Around("storageMethods() && !referenceSnapshotReads()")
+    public Object timeStorageCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        countInCurrentRequest();
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            TimerKey key = new TimerKey(joinPoint.getTarget().getClass().getSimpleName(),
+                    joinPoint.getSignature().getName(), exception);
+            sample.stop(timers.computeIfAbsent(key, this::registerTimer));
+        }
+    }
+
+    private Timer registerTimer(TimerKey key) {
+        return Timer.builder("filmorate.storage")
+                .description("Время выполнения методов хранилищ")
+                .tag("class", key.className())
+                .tag("method", key.method())
+                .tag("exception", key.exception())
+                .register(meterRegistry);
+    }
+
+    // Вне HTTP-запроса (инициализация, фоновые потоки, потоковая выгрузка) счетчика нет
+    private void countInCurrentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+
+        AtomicInteger calls = (AtomicInteger) attributes.getAttribute(STORAGE_CALLS_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (calls == null) {
+            calls = new AtomicInteger();
+            attributes.setAttribute(STORAGE_CALLS_ATTRIBUTE, calls, RequestAttributes.SCOPE_REQUEST);
+        }
+        calls.incrementAndGet();
+    }
+
+    private record TimerKey(String className, String method, String exception) {
+    }
+}
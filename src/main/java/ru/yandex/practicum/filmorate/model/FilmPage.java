@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Страница отфильтрованных фильмов: total — сколько фильмов подходит под фильтр целиком,
+// facets — сколько из них приходится на каждый жанр, рейтинг MPA и год выпуска
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class FilmPage {
+    List<Film> films = new ArrayList<>();
+    int total;
+    Facets facets = new Facets();
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Facets {
+        Map<Long, Integer> genres = new TreeMap<>();
+        Map<Long, Integer> mpa = new TreeMap<>();
+        Map<Integer, Integer> years = new TreeMap<>();
+    }
+}
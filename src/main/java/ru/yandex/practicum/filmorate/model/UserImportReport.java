@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Итог импорта пользователей: счетчики, первые ошибки и пропускная способность
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserImportReport {
+    long records;
+    long users;
+    long friendships;
+    long skipped;
+    List<String> errors = new ArrayList<>();
+    long elapsedMs;
+    long recordsPerSecond;
+}
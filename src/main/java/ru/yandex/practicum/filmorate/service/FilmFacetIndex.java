@@ -0,0 +1,197 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmPage;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.CompressedBitmap;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Битовые карты ID фильмов по жанру, рейтингу MPA и году выпуска. Фильтр — пересечение карт,
+// счетчик фасета — мощность пересечения результата с картой значения, без обращения к БД.
+// Карты хранят int: фильмы с ID больше Integer.MAX_VALUE в индекс не попадают
+@Component
+@Slf4j
+public class FilmFacetIndex {
+    private final FilmStorage filmStorage;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private Snapshot snapshot = new Snapshot();
+    // Записи и удаления во время перестройки: проигрываются поверх нового снимка по порядку
+    private List<Consumer<Snapshot>> changesDuringRebuild;
+
+    @Autowired
+    public FilmFacetIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            withWriteLock(() -> changesDuringRebuild = new ArrayList<>());
+            Snapshot newSnapshot = new Snapshot();
+            filmStorage.forEach(newSnapshot::put);
+
+            withWriteLock(() -> {
+                snapshot = newSnapshot;
+                changesDuringRebuild.forEach(change -> change.accept(newSnapshot));
+                changesDuringRebuild = null;
+            });
+            log.info("Индекс фасетов построен: {} фильмов, {} жанров, {} рейтингов, {} лет",
+                    newSnapshot.all.cardinality(), newSnapshot.byGenre.size(),
+                    newSnapshot.byMpa.size(), newSnapshot.byYear.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Новый фильм или новые жанр, рейтинг и дата измененного
+    public void put(Film film) {
+        change(current -> current.put(film));
+    }
+
+    public void remove(long filmId) {
+        change(current -> current.remove(filmId));
+    }
+
+    private void change(Consumer<Snapshot> change) {
+        withWriteLock(() -> {
+            change.accept(snapshot);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        });
+    }
+
+    // Отсутствующий фильтр (null) не ограничивает выборку. Фасеты считаются по всей выборке,
+    // страница — до limit ID больше afterId по возрастанию
+    public Selection select(Long genreId, Long mpaId, Integer yearFrom, Integer yearTo, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            return snapshot.select(genreId, mpaId, yearFrom, yearTo, afterId, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public record Selection(List<Long> filmIds, int total, FilmPage.Facets facets) {
+    }
+
+    private static class Snapshot {
+        private static final CompressedBitmap EMPTY = new CompressedBitmap();
+
+        private final CompressedBitmap all = new CompressedBitmap();
+        private final Map<Long, CompressedBitmap> byGenre = new HashMap<>();
+        private final Map<Long, CompressedBitmap> byMpa = new HashMap<>();
+        private final NavigableMap<Integer, CompressedBitmap> byYear = new TreeMap<>();
+
+        // Прежние значения фильма не хранятся: при изменении он снимается со всех карт,
+        // которых немного — по одной на жанр, рейтинг и год
+        void put(Film film) {
+            if (film.getId() > Integer.MAX_VALUE) {
+                log.warn("Фильм {} не попадает в индекс фасетов: ID больше {}", film.getId(), Integer.MAX_VALUE);
+                return;
+            }
+            int filmId = film.getId().intValue();
+            if (all.contains(filmId)) {
+                removeFrom(byGenre, filmId);
+                removeFrom(byMpa, filmId);
+                removeFrom(byYear, filmId);
+            }
+
+            all.add(filmId);
+            if (film.getGenres() != null) {
+                for (Genre genre : film.getGenres()) {
+                    byGenre.computeIfAbsent(genre.getId(), id -> new CompressedBitmap()).add(filmId);
+                }
+            }
+            if (film.getMpa() != null && film.getMpa().getId() != null) {
+                byMpa.computeIfAbsent(film.getMpa().getId(), id -> new CompressedBitmap()).add(filmId);
+            }
+            if (film.getReleaseDate() != null) {
+                byYear.computeIfAbsent(film.getReleaseDate().getYear(), year -> new CompressedBitmap()).add(filmId);
+            }
+        }
+
+        void remove(long filmId) {
+            if (filmId > Integer.MAX_VALUE || !all.remove((int) filmId)) {
+                return;
+            }
+            removeFrom(byGenre, (int) filmId);
+            removeFrom(byMpa, (int) filmId);
+            removeFrom(byYear, (int) filmId);
+        }
+
+        private static <K> void removeFrom(Map<K, CompressedBitmap> bitmaps, int filmId) {
+            bitmaps.values().removeIf(bitmap -> bitmap.remove(filmId) && bitmap.isEmpty());
+        }
+
+        Selection select(Long genreId, Long mpaId, Integer yearFrom, Integer yearTo, long afterId, int limit) {
+            CompressedBitmap result = all;
+            if (genreId != null) {
+                result = result.and(byGenre.getOrDefault(genreId, EMPTY));
+            }
+            if (mpaId != null) {
+                result = result.and(byMpa.getOrDefault(mpaId, EMPTY));
+            }
+            // Годы вне диапазона заведомо дают нулевые счетчики, поэтому и считаются только годы диапазона
+            NavigableMap<Integer, CompressedBitmap> years = byYear;
+            if (yearFrom != null || yearTo != null) {
+                years = byYear.subMap(yearFrom == null ? Integer.MIN_VALUE : yearFrom, true,
+                        yearTo == null ? Integer.MAX_VALUE : yearTo, true);
+                CompressedBitmap inRange = new CompressedBitmap();
+                for (CompressedBitmap bitmap : years.values()) {
+                    inRange = inRange.or(bitmap);
+                }
+                result = result.and(inRange);
+            }
+
+            FilmPage.Facets facets = new FilmPage.Facets();
+            count(result, byGenre, facets.getGenres());
+            count(result, byMpa, facets.getMpa());
+            count(result, years, facets.getYears());
+
+            List<Long> filmIds = new ArrayList<>(limit);
+            // Integer.MAX_VALUE — последнее возможное значение: следующий поиск после него переполнил бы int
+            int id = afterId >= Integer.MAX_VALUE ? -1 : result.nextValue((int) afterId + 1);
+            while (id >= 0 && filmIds.size() < limit) {
+                filmIds.add((long) id);
+                id = id == Integer.MAX_VALUE ? -1 : result.nextValue(id + 1);
+            }
+            return new Selection(filmIds, result.cardinality(), facets);
+        }
+
+        private static <K> void count(CompressedBitmap result, Map<K, CompressedBitmap> bitmaps, Map<K, Integer> counts) {
+            for (Map.Entry<K, CompressedBitmap> entry : bitmaps.entrySet()) {
+                int count = result.andCardinality(entry.getValue());
+                if (count > 0) {
+                    counts.put(entry.getKey(), count);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Рейтинг фильмов по числу лайков в памяти: чтение топа без обращения к БД,
+// обновление за O(log n) на каждый лайк. Кроме общего рейтинга ведутся отдельные
+// рейтинги по каждому жанру и году выпуска, фильм входит в рейтинги всех своих жанров
+@Component
+@Slf4j
+public class FilmPopularityIndex {
+    private static final Comparator<Entry> BY_LIKES_DESC = Comparator.comparingInt(Entry::likes)
+            .reversed()
+            .thenComparingLong(Entry::filmId);
+    private static final NavigableSet<Entry> EMPTY = new ConcurrentSkipListSet<>(BY_LIKES_DESC);
+    private static final Keys NO_KEYS = new Keys(0, new long[0]);
+
+    private final FilmStorage filmStorage;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Запись лайка в БД вместе с правкой индекса идет под блокировкой чтения, подмена снимка —
+    // под блокировкой записи: незавершенная запись не может донести дельту до нового снимка
+    private final ReentrantReadWriteLock likeWrites = new ReentrantReadWriteLock();
+
+    private volatile Rankings rankings = new Rankings(new ConcurrentHashMap<>());
+    // Фильмы, измененные во время перестройки: их состояние переносится в новый снимок
+    private Set<Long> changedDuringRebuild;
+
+    @Autowired
+    public FilmPopularityIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            withLock(() -> changedDuringRebuild = new HashSet<>());
+            Rankings newRankings = new Rankings(loadKeys());
+            filmStorage.getLikeCounts().forEach((filmId, likes) -> newRankings.put(new Entry(filmId, likes)));
+
+            // Лайк записывается в БД раньше, чем приходит в индекс, и выборка могла его уже
+            // учесть. Поэтому дельты поверх снимка не проигрываются: измененный фильм
+            // переносится из текущего индекса целиком — с числом лайков, жанрами и годом.
+            // Перед подменой дожидаемся начатых записей, чтобы их дельты попали в этот перенос
+            likeWrites.writeLock().lock();
+            try {
+                withLock(() -> {
+                    for (long filmId : changedDuringRebuild) {
+                        Entry entry = rankings.entries.get(filmId);
+                        if (entry == null) {
+                            newRankings.remove(filmId);
+                        } else {
+                            newRankings.replace(filmId, rankings.keys.get(filmId), entry);
+                        }
+                    }
+                    rankings = newRankings;
+                    changedDuringRebuild = null;
+                });
+            } finally {
+                likeWrites.writeLock().unlock();
+            }
+            log.info("Индекс популярности построен: {} фильмов, {} жанров, {} лет",
+                    newRankings.entries.size(), newRankings.byGenre.size(), newRankings.byYear.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Новый фильм попадает в рейтинги без лайков; у существующего меняются жанры и год,
+    // число лайков сохраняется
+    public void putFilm(Film film) {
+        long filmId = film.getId();
+        long[] genreIds = film.getGenres() == null ? new long[0] : film.getGenres().stream()
+                .mapToLong(Genre::getId)
+                .sorted()
+                .toArray();
+        Keys filmKeys = new Keys(film.getReleaseDate().getYear(), genreIds);
+
+        withLock(() -> {
+            Entry current = rankings.entries.get(filmId);
+            rankings.replace(filmId, filmKeys, current == null ? new Entry(filmId, 0) : current);
+            markChanged(filmId);
+        });
+    }
+
+    // Удаленный фильм снимается со всех рейтингов; лайки, пришедшие после, пропускаются
+    public void removeFilm(long filmId) {
+        withLock(() -> {
+            rankings.remove(filmId);
+            markChanged(filmId);
+        });
+    }
+
+    // Фильм, которого нет в индексе (например, созданный другим узлом), пропускается: без жанров
+    // и года он попал бы не в свои рейтинги. В индекс он попадет при следующей перестройке
+    public void changeLikes(long filmId, int delta) {
+        withLock(() -> {
+            Entry current = rankings.entries.get(filmId);
+            if (current == null) {
+                log.debug("Фильма {} нет в индексе популярности, лайк учтется при перестройке", filmId);
+                return;
+            }
+            rankings.replace(filmId, null, new Entry(filmId, Math.max(0, current.likes() + delta)));
+            markChanged(filmId);
+        });
+    }
+
+    // Оборачивает запись лайков в БД и последующий вызов changeLikes
+    public void recordLikes(Runnable write) {
+        likeWrites.readLock().lock();
+        try {
+            write.run();
+        } finally {
+            likeWrites.readLock().unlock();
+        }
+    }
+
+    public List<Long> top(int count) {
+        return top(count, null, null);
+    }
+
+    // Отсутствующий фильтр (null) не ограничивает рейтинг. При обоих фильтрах обходится
+    // рейтинг года — он обычно короче жанрового — с проверкой жанра фильма
+    public List<Long> top(int count, Long genreId, Integer year) {
+        Rankings current = rankings;
+        NavigableSet<Entry> source = current.ranking;
+        if (year != null) {
+            source = current.byYear.getOrDefault(year, EMPTY);
+        } else if (genreId != null) {
+            source = current.byGenre.getOrDefault(genreId, EMPTY);
+        }
+        boolean checkGenre = year != null && genreId != null;
+
+        List<Long> filmIds = new ArrayList<>(Math.min(count, current.entries.size()));
+        for (Entry entry : source) {
+            if (filmIds.size() == count) {
+                break;
+            }
+            if (!checkGenre || current.hasGenre(entry.filmId(), genreId)) {
+                filmIds.add(entry.filmId());
+            }
+        }
+        return filmIds;
+    }
+
+    private Map<Long, Keys> loadKeys() {
+        Map<Long, List<Long>> genres = new HashMap<>();
+        filmStorage.forEachFilmGenre((filmId, genreId) ->
+                genres.computeIfAbsent(filmId, id -> new ArrayList<>()).add(genreId));
+
+        Map<Long, Keys> result = new ConcurrentHashMap<>();
+        filmStorage.getReleaseYears().forEach((filmId, year) -> {
+            long[] genreIds = genres.getOrDefault(filmId, List.of()).stream().mapToLong(Long::longValue).toArray();
+            result.put(filmId, new Keys(year, genreIds));
+        });
+        return result;
+    }
+
+    private void markChanged(long filmId) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(filmId);
+        }
+    }
+
+    private void withLock(Runnable action) {
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static NavigableSet<Entry> newSet() {
+        return new ConcurrentSkipListSet<>(BY_LIKES_DESC);
+    }
+
+    private record Entry(long filmId, int likes) {
+    }
+
+    // Общий рейтинг, рейтинги по жанрам и годам и их ключи. Множества конкурентные:
+    // чтение топа идет без блокировки, запись — под общей блокировкой индекса
+    private static class Rankings {
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        private final NavigableSet<Entry> ranking = newSet();
+        // Жанры и год фильма: по ним находятся рейтинги, которые нужно обновить при лайке
+        private final Map<Long, Keys> keys;
+        private final Map<Long, NavigableSet<Entry>> byGenre = new ConcurrentHashMap<>();
+        private final Map<Integer, NavigableSet<Entry>> byYear = new ConcurrentHashMap<>();
+
+        Rankings(Map<Long, Keys> keys) {
+            this.keys = keys;
+        }
+
+        // Замена записи и ключей фильма: ключи null оставляют прежние, запись null снимает фильм с рейтингов
+        void replace(long filmId, Keys filmKeys, Entry entry) {
+            Entry current = entries.remove(filmId);
+            if (current != null) {
+                remove(current);
+            }
+            if (filmKeys != null) {
+                keys.put(filmId, filmKeys);
+            }
+            if (entry != null) {
+                put(entry);
+            }
+        }
+
+        void remove(long filmId) {
+            replace(filmId, null, null);
+            keys.remove(filmId);
+        }
+
+        void put(Entry entry) {
+            entries.put(entry.filmId(), entry);
+            ranking.add(entry);
+            Keys filmKeys = keys.getOrDefault(entry.filmId(), NO_KEYS);
+            for (long genreId : filmKeys.genreIds()) {
+                byGenre.computeIfAbsent(genreId, id -> newSet()).add(entry);
+            }
+            byYear.computeIfAbsent(filmKeys.year(), year -> newSet()).add(entry);
+        }
+
+        private void remove(Entry entry) {
+            ranking.remove(entry);
+            Keys filmKeys = keys.getOrDefault(entry.filmId(), NO_KEYS);
+            for (long genreId : filmKeys.genreIds()) {
+                byGenre.getOrDefault(genreId, EMPTY).remove(entry);
+            }
+            byYear.getOrDefault(filmKeys.year(), EMPTY).remove(entry);
+        }
+
+        boolean hasGenre(long filmId, long genreId) {
+            return Arrays.binarySearch(keys.getOrDefault(filmId, NO_KEYS).genreIds(), genreId) >= 0;
+        }
+    }
+
+    // Жанры — по возрастанию ID, для двоичного поиска
+    private record Keys(int year, long[] genreIds) {
+    }
+}
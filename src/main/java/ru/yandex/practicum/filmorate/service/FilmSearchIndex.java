@@ -0,0 +1,341 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// Обратный индекс по названию и описанию фильмов: слово -> отсортированные ID фильмов
+// с числом вхождений. Ранжирование по BM25, слова названия весят вдвое больше слов описания.
+// Слова приводятся к нижнему регистру, «ё» — к «е»; морфология не учитывается
+@Component
+@Slf4j
+public class FilmSearchIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int NAME_WEIGHT = 2;
+    private static final int MIN_TOKEN_LENGTH = 2;
+
+    private final FilmStorage filmStorage;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private Snapshot snapshot = new Snapshot();
+    // Записи и удаления во время перестройки: проигрываются поверх нового снимка по порядку
+    private List<Consumer<Snapshot>> changesDuringRebuild;
+
+    @Autowired
+    public FilmSearchIndex(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            withWriteLock(() -> changesDuringRebuild = new ArrayList<>());
+            Snapshot newSnapshot = new Snapshot();
+            filmStorage.forEach(newSnapshot::put);
+
+            withWriteLock(() -> {
+                snapshot = newSnapshot;
+                // Повторная запись фильма заменяет прежнюю, удаление отсутствующего ничего не меняет
+                changesDuringRebuild.forEach(change -> change.accept(newSnapshot));
+                changesDuringRebuild = null;
+            });
+            log.info("Поисковый индекс построен: {} фильмов, {} слов",
+                    newSnapshot.termsByFilm.size(), newSnapshot.postings.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Добавление нового фильма или замена слов измененного
+    public void put(Film film) {
+        change(current -> current.put(film));
+    }
+
+    public void remove(long filmId) {
+        change(current -> current.remove(filmId));
+    }
+
+    private void change(Consumer<Snapshot> change) {
+        withWriteLock(() -> {
+            change.accept(snapshot);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        });
+    }
+
+    // ID фильмов, содержащих хотя бы одно слово запроса, по убыванию оценки
+    // (при равенстве — по возрастанию ID), начиная с позиции offset
+    public List<Long> search(String query, int offset, int limit) {
+        String[] terms = tokenize(query).keySet().toArray(String[]::new);
+        if (terms.length == 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return snapshot.search(terms, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Слово -> число вхождений в порядке первого появления
+    static Map<String, Integer> tokenize(String text) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        addTokens(text, 1, counts);
+        return counts;
+    }
+
+    private static void addTokens(String text, int weight, Map<String, Integer> counts) {
+        if (text == null) {
+            return;
+        }
+        String folded = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start >= MIN_TOKEN_LENGTH) {
+                    counts.merge(folded.substring(start, i), weight, Integer::sum);
+                }
+                start = -1;
+            }
+        }
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static class Snapshot {
+        private final Map<String, Postings> postings = new HashMap<>();
+        // Слова фильма, чтобы при изменении убрать его из прежних списков
+        private final Map<Long, String[]> termsByFilm = new HashMap<>();
+        private final LongLongHashMap lengths = new LongLongHashMap();
+        private long totalLength;
+
+        void put(Film film) {
+            long filmId = film.getId();
+            remove(filmId);
+
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            addTokens(film.getName(), NAME_WEIGHT, counts);
+            addTokens(film.getDescription(), 1, counts);
+
+            int length = 0;
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                length += entry.getValue();
+            }
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new Postings()).add(filmId, entry.getValue(), length);
+            }
+            termsByFilm.put(filmId, counts.keySet().toArray(String[]::new));
+            lengths.put(filmId, length, 0);
+            totalLength += length;
+        }
+
+        void remove(long filmId) {
+            String[] terms = termsByFilm.remove(filmId);
+            if (terms == null) {
+                return;
+            }
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                list.remove(filmId);
+                if (list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+            totalLength -= lengths.put(filmId, 0, 0);
+        }
+
+        // Списки слов запроса сливаются по возрастанию ID, так что оценка фильма
+        // собирается за один проход без промежуточной таблицы
+        List<Long> search(String[] terms, int offset, int limit) {
+            int filmCount = termsByFilm.size();
+            double averageLength = filmCount == 0 ? 0 : (double) totalLength / filmCount;
+
+            Postings[] lists = new Postings[terms.length];
+            double[] idf = new double[terms.length];
+            int listCount = 0;
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list != null) {
+                    idf[listCount] = Math.log(1 + (filmCount - list.size + 0.5) / (list.size + 0.5));
+                    lists[listCount++] = list;
+                }
+            }
+
+            int[] positions = new int[listCount];
+            TopK top = new TopK(offset + limit);
+            while (true) {
+                long filmId = Long.MAX_VALUE;
+                for (int i = 0; i < listCount; i++) {
+                    if (positions[i] < lists[i].size) {
+                        filmId = Math.min(filmId, lists[i].filmIds[positions[i]]);
+                    }
+                }
+                if (filmId == Long.MAX_VALUE) {
+                    break;
+                }
+
+                double score = 0;
+                for (int i = 0; i < listCount; i++) {
+                    Postings list = lists[i];
+                    int position = positions[i];
+                    if (position < list.size && list.filmIds[position] == filmId) {
+                        double norm = K1 * (1 - B + B * list.lengths[position] / averageLength);
+                        int tf = list.counts[position];
+                        score += idf[i] * tf * (K1 + 1) / (tf + norm);
+                        positions[i]++;
+                    }
+                }
+                top.offer(filmId, score);
+            }
+            return top.page(offset);
+        }
+    }
+
+    // Отсортированные ID фильмов, числа вхождений и длины текстов. Длина дублируется в каждом
+    // списке, чтобы при слиянии не искать ее в отдельной таблице. Новые фильмы получают
+    // наибольшие ID, поэтому при создании запись почти всегда дописывается в конец
+    private static class Postings {
+        private long[] filmIds = new long[4];
+        private int[] counts = new int[4];
+        private int[] lengths = new int[4];
+        private int size;
+
+        void add(long filmId, int count, int length) {
+            int position = size > 0 && filmIds[size - 1] < filmId
+                    ? size
+                    : -Arrays.binarySearch(filmIds, 0, size, filmId) - 1;
+            if (size == filmIds.length) {
+                filmIds = Arrays.copyOf(filmIds, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            System.arraycopy(filmIds, position, filmIds, position + 1, size - position);
+            System.arraycopy(counts, position, counts, position + 1, size - position);
+            System.arraycopy(lengths, position, lengths, position + 1, size - position);
+            filmIds[position] = filmId;
+            counts[position] = count;
+            lengths[position] = length;
+            size++;
+        }
+
+        void remove(long filmId) {
+            int position = Arrays.binarySearch(filmIds, 0, size, filmId);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(filmIds, position + 1, filmIds, position, size - position - 1);
+            System.arraycopy(counts, position + 1, counts, position, size - position - 1);
+            System.arraycopy(lengths, position + 1, lengths, position, size - position - 1);
+            size--;
+        }
+    }
+
+    // Лучшие capacity результатов: куча с худшим элементом в корне на параллельных массивах
+    private static class TopK {
+        private final long[] ids;
+        private final double[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            ids = new long[capacity];
+            scores = new double[capacity];
+        }
+
+        void offer(long id, double score) {
+            if (size < ids.length) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (better(score, id, scores[0], ids[0])) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        List<Long> page(int offset) {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> better(scores[a], ids[a], scores[b], ids[b]) ? -1 : 1);
+
+            List<Long> result = new ArrayList<>(Math.max(0, size - offset));
+            for (int i = offset; i < size; i++) {
+                result.add(ids[order[i]]);
+            }
+            return result;
+        }
+
+        private static boolean better(double score, long id, double otherScore, long otherId) {
+            return score > otherScore || score == otherScore && id < otherId;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!better(scores[parent], ids[parent], scores[index], ids[index])) {
+                    break;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int worst = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                    if (better(scores[worst], ids[worst], scores[child], ids[child])) {
+                        worst = child;
+                    }
+                }
+                if (worst == index) {
+                    return;
+                }
+                swap(index, worst);
+                index = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
@@ -1,61 +1,148 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
-import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.model.FilmPage;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @Slf4j
 public class FilmService {
-    private final FilmDbStorage filmDbStorage;
-    private final UserDbStorage userDbStorage;
+    private final FilmStorage filmStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmFacetIndex facetIndex;
+    // Очередь отложенной записи лайков; null, если режим выключен
+    private final LikeWriteBehindQueue likeQueue;
+    private final int importChunkSize;
 
     @Autowired
-    public FilmService(@Qualifier("filmDbStorage") FilmDbStorage filmDbStorage,
-                       @Qualifier("userDbStorage") UserDbStorage userDbStorage) {
-        this.filmDbStorage = filmDbStorage;
-        this.userDbStorage = userDbStorage;
+    public FilmService(FilmStorage filmStorage,
+                       FilmPopularityIndex popularityIndex,
+                       FilmSimilarityIndex similarityIndex,
+                       FilmSearchIndex searchIndex,
+                       FilmFacetIndex facetIndex,
+                       ObjectProvider<LikeWriteBehindQueue> likeQueue,
+                       @Value("${filmorate.import.chunk-size:500}") int importChunkSize) {
+        this.filmStorage = filmStorage;
+        this.popularityIndex = popularityIndex;
+        this.similarityIndex = similarityIndex;
+        this.searchIndex = searchIndex;
+        this.facetIndex = facetIndex;
+        this.likeQueue = likeQueue.getIfAvailable();
+        this.importChunkSize = importChunkSize;
     }
 
-    public void addLike(Long filmId, Long userId) {
-        if (!userDbStorage.existsById(userId)) {
-            throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+    public Film create(Film film) {
+        Film created = filmStorage.create(film);
+        popularityIndex.putFilm(created);
+        searchIndex.put(created);
+        facetIndex.put(created);
+        return created;
+    }
+
+    public Film update(Film film) {
+        Film updated = filmStorage.update(film);
+        // Жанры и год могли смениться: фильм переносится между рейтингами
+        popularityIndex.putFilm(updated);
+        searchIndex.put(updated);
+        facetIndex.put(updated);
+        return updated;
+    }
+
+    // Лайки фильма удаляются вместе с ним; матрица похожих фильмов забудет их при перестройке,
+    // а удаленные ID из ее ответов отсеивает загрузка фильмов из хранилища
+    public void delete(Long id) {
+        filmStorage.delete(id);
+        popularityIndex.removeFilm(id);
+        searchIndex.remove(id);
+        facetIndex.remove(id);
+    }
+
+    // Импорт порциями: каждая порция — отдельная транзакция, при ошибке уже записанные порции остаются
+    public List<Long> importFilms(List<Film> films) {
+        List<Long> ids = new ArrayList<>(films.size());
+        for (int from = 0; from < films.size(); from += importChunkSize) {
+            List<Film> chunk = films.subList(from, Math.min(from + importChunkSize, films.size()));
+            List<Long> chunkIds = filmStorage.createAll(chunk);
+            // createAll проставляет ID в сами фильмы, поэтому их можно индексировать без перечитывания
+            chunk.forEach(popularityIndex::putFilm);
+            chunk.forEach(searchIndex::put);
+            chunk.forEach(facetIndex::put);
+            ids.addAll(chunkIds);
         }
+        log.info("Импортировано фильмов: {}", ids.size());
+        return ids;
+    }
 
-        if (!filmDbStorage.existsById(filmId)) {
-            throw new NotFoundException(String.format("Фильм с ID %d не найден", filmId));
+    // Проверки существования фильма и пользователя выполняет сама вставка в хранилище
+    public void addLike(Long filmId, Long userId) {
+        if (likeQueue != null) {
+            likeQueue.addLike(filmId, userId);
+            return;
         }
 
-        filmDbStorage.addLike(filmId, userId);
+        popularityIndex.recordLikes(() -> {
+            filmStorage.addLike(filmId, userId);
+            popularityIndex.changeLikes(filmId, 1);
+            similarityIndex.addLike(filmId, userId);
+        });
         log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
     }
 
     public void removeLike(Long filmId, Long userId) {
-        if (!userDbStorage.existsById(userId)) {
-            throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+        if (likeQueue != null) {
+            likeQueue.removeLike(filmId, userId);
+            return;
         }
 
-        if (!filmDbStorage.existsById(filmId)) {
-            throw new NotFoundException(String.format("Фильм с ID %d не найден", filmId));
-        }
-
-        filmDbStorage.removeLike(filmId, userId);
+        popularityIndex.recordLikes(() -> {
+            if (filmStorage.removeLike(filmId, userId)) {
+                popularityIndex.changeLikes(filmId, -1);
+                similarityIndex.removeLike(filmId, userId);
+            }
+        });
         log.info("Пользователь {} удалил лайк с фильма {}", userId, filmId);
     }
 
     public List<Film> getPopularFilms(int count) {
+        return getPopularFilms(count, null, null);
+    }
+
+    public List<Film> getPopularFilms(int count, Long genreId, Integer year) {
         if (count <= 0) {
             throw new ValidationException("Количество фильмов должно быть положительным");
         }
-        return filmDbStorage.getPopularFilms(count);
+        // Порядок берется из индекса в памяти, из хранилища догружаются только сами фильмы
+        return filmStorage.findAllByIds(popularityIndex.top(count, genreId, year));
+    }
+
+    public List<Film> searchFilms(String query, int offset, int limit) {
+        List<Long> filmIds = searchIndex.search(query, offset, limit);
+        log.debug("По запросу «{}» найдено на странице: {}", query, filmIds.size());
+        return filmStorage.findAllByIds(filmIds);
+    }
+
+    public FilmPage browseFilms(Long genreId, Long mpaId, Integer yearFrom, Integer yearTo, long afterId, int limit) {
+        if (yearFrom != null && yearTo != null && yearFrom > yearTo) {
+            throw new ValidationException("Параметр yearFrom не может быть больше yearTo");
+        }
+
+        FilmFacetIndex.Selection selection = facetIndex.select(genreId, mpaId, yearFrom, yearTo, afterId, limit);
+        FilmPage page = new FilmPage();
+        page.setFilms(filmStorage.findAllByIds(selection.filmIds()));
+        page.setTotal(selection.total());
+        page.setFacets(selection.facets());
+        return page;
     }
 
     public List<Film> getPopularFilms() {
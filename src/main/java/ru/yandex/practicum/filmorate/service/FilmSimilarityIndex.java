@@ -0,0 +1,387 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.IntIntHashMap;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// «Этот фильм также понравился»: разреженная матрица совместных лайков фильм -> фильм в памяти.
+// Строится одним проходом по likes при старте и обновляется на каждый лайк за O(лайков пользователя).
+// Пользователи, лайкнувшие больше maxUserLikes фильмов, в матрицу не входят: их вклад квадратичен
+// по числу лайков и почти не несет сигнала
+@Component
+@Slf4j
+public class FilmSimilarityIndex {
+    private static final long[] EMPTY = new long[0];
+
+    private final FilmStorage filmStorage;
+    private final int maxUserLikes;
+    private final int neighborCount;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // Лайки пользователя — отсортированные ID фильмов
+    private Map<Long, long[]> likesByUser = new HashMap<>();
+    private LongLongHashMap likeCounts = new LongLongHashMap();
+    // Строка фильма: ID другого фильма -> число пользователей, лайкнувших оба
+    private Map<Long, IntIntHashMap> coLikes = new HashMap<>();
+    // Ближайшие соседи фильма, считаются при первом обращении и сбрасываются при изменении строки
+    private final Map<Long, Neighbors> neighborCache = new ConcurrentHashMap<>();
+    // Изменения, пришедшие во время перестройки: проигрываются поверх нового снимка
+    private List<long[]> changesDuringRebuild;
+
+    @Autowired
+    public FilmSimilarityIndex(FilmStorage filmStorage,
+                               @Value("${filmorate.recommendations.max-user-likes:500}") int maxUserLikes,
+                               @Value("${filmorate.recommendations.neighbors:50}") int neighborCount) {
+        this.filmStorage = filmStorage;
+        this.maxUserLikes = maxUserLikes;
+        this.neighborCount = neighborCount;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            withWriteLock(() -> changesDuringRebuild = new ArrayList<>());
+            Snapshot snapshot = new Snapshot();
+            LikesBuilder builder = new LikesBuilder(snapshot);
+            filmStorage.forEachLike(builder::accept);
+            builder.flush();
+            if (builder.skipped > 0) {
+                log.warn("В индекс похожих фильмов не вошли {} лайков фильмов с ID больше {}",
+                        builder.skipped, Integer.MAX_VALUE);
+            }
+
+            withWriteLock(() -> {
+                likesByUser = snapshot.likesByUser;
+                likeCounts = snapshot.likeCounts;
+                coLikes = snapshot.coLikes;
+                neighborCache.clear();
+                // Операции идемпотентны: лайк, уже попавший в снимок, повторно не учитывается
+                changesDuringRebuild.forEach(change -> apply(change[0], change[1], change[2] == 1));
+                changesDuringRebuild = null;
+            });
+            log.info("Индекс похожих фильмов построен: {} пользователей, {} фильмов со связями",
+                    snapshot.likesByUser.size(), snapshot.coLikes.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public void addLike(long filmId, long userId) {
+        change(filmId, userId, true);
+    }
+
+    public void removeLike(long filmId, long userId) {
+        change(filmId, userId, false);
+    }
+
+    public long[] likedFilms(long userId) {
+        lock.readLock().lock();
+        try {
+            return likesByUser.getOrDefault(userId, EMPTY).clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Похожие фильмы по косинусной мере: co(a, b) / sqrt(likes(a) * likes(b))
+    public List<Long> similar(long filmId, int count) {
+        lock.readLock().lock();
+        try {
+            Neighbors ranked = count <= neighborCount ? neighbors(filmId) : rank(filmId, count);
+            int size = Math.min(count, ranked.filmIds().length);
+            List<Long> filmIds = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                filmIds.add(ranked.filmIds()[i]);
+            }
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Сумма сходства кандидата с фильмами, которые понравились пользователю; уже лайкнутые исключаются.
+    // Кандидаты берутся только из списков ближайших соседей, поэтому время ответа не зависит
+    // от длины строк матрицы, а учитываются не больше maxUserLikes лайков пользователя
+    public List<Long> recommend(long userId, int count) {
+        lock.readLock().lock();
+        try {
+            long[] liked = likesByUser.getOrDefault(userId, EMPTY);
+            Scores scores = new Scores();
+            for (int i = 0; i < Math.min(liked.length, maxUserLikes); i++) {
+                Neighbors neighbors = neighbors(liked[i]);
+                for (int j = 0; j < neighbors.filmIds().length; j++) {
+                    long candidateId = neighbors.filmIds()[j];
+                    if (Arrays.binarySearch(liked, candidateId) < 0) {
+                        scores.add(candidateId, neighbors.scores()[j]);
+                    }
+                }
+            }
+
+            TopK top = new TopK(count);
+            for (int i = 0; i < scores.size; i++) {
+                top.offer(scores.filmIds[i], scores.values[i]);
+            }
+            return toList(top.ranked().filmIds());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Вызывается под блокировкой чтения: строки матрицы в это время не меняются
+    private Neighbors neighbors(long filmId) {
+        return neighborCache.computeIfAbsent(filmId, id -> rank(id, neighborCount));
+    }
+
+    private Neighbors rank(long filmId, int count) {
+        IntIntHashMap row = coLikes.get(filmId);
+        if (row == null) {
+            return Neighbors.NONE;
+        }
+        double filmLikes = likeCounts.get(filmId, 0);
+        TopK top = new TopK(count);
+        row.forEach((otherId, together) -> {
+            if (together > 0) {
+                top.offer(otherId, together / Math.sqrt(filmLikes * likeCounts.get(otherId, 1)));
+            }
+        });
+        return top.ranked();
+    }
+
+    private void change(long filmId, long userId, boolean added) {
+        withWriteLock(() -> {
+            apply(userId, filmId, added);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(new long[]{userId, filmId, added ? 1 : 0});
+            }
+        });
+    }
+
+    // Вызывается под блокировкой записи
+    private void apply(long userId, long filmId, boolean added) {
+        if (filmId > Integer.MAX_VALUE) {
+            log.warn("Лайк фильма {} не попадает в индекс похожих фильмов: ID больше {}", filmId, Integer.MAX_VALUE);
+            return;
+        }
+        long[] before = likesByUser.getOrDefault(userId, EMPTY);
+        int position = Arrays.binarySearch(before, filmId);
+        if (added == position >= 0) {
+            return;
+        }
+
+        long[] after = added ? insert(before, -position - 1, filmId) : remove(before, position);
+        if (after.length == 0) {
+            likesByUser.remove(userId);
+        } else {
+            likesByUser.put(userId, after);
+        }
+        likeCounts.addTo(filmId, added ? 1 : -1);
+
+        // Изменились строки всех фильмов пользователя. Списки соседей других фильмов, где этот фильм
+        // встречается, досчитаются с новым числом его лайков при следующем изменении своей строки
+        for (long touched : added ? after : before) {
+            neighborCache.remove(touched);
+        }
+
+        boolean countedBefore = before.length <= maxUserLikes;
+        boolean countedAfter = after.length <= maxUserLikes;
+        if (countedBefore && countedAfter) {
+            addPairs(coLikes, filmId, added ? before : after, added ? 1 : -1);
+        } else if (countedBefore) {
+            addAllPairs(coLikes, before, -1);
+        } else if (countedAfter) {
+            addAllPairs(coLikes, after, 1);
+        }
+    }
+
+    private void withWriteLock(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void addPairs(Map<Long, IntIntHashMap> coLikes, long filmId, long[] others, int delta) {
+        for (long otherId : others) {
+            if (otherId != filmId) {
+                addPair(coLikes, filmId, otherId, delta);
+            }
+        }
+    }
+
+    private static void addAllPairs(Map<Long, IntIntHashMap> coLikes, long[] films, int delta) {
+        for (int i = 0; i < films.length; i++) {
+            for (int j = i + 1; j < films.length; j++) {
+                addPair(coLikes, films[i], films[j], delta);
+            }
+        }
+    }
+
+    // Строки хранят ID фильмов как int: так матрица занимает втрое меньше памяти.
+    // Фильмы с большими ID отсекаются раньше, в apply и LikesBuilder
+    private static void addPair(Map<Long, IntIntHashMap> coLikes, long filmId, long otherId, int delta) {
+        coLikes.computeIfAbsent(filmId, id -> new IntIntHashMap()).addTo(Math.toIntExact(otherId), delta);
+        coLikes.computeIfAbsent(otherId, id -> new IntIntHashMap()).addTo(Math.toIntExact(filmId), delta);
+    }
+
+    private static long[] insert(long[] values, int at, long value) {
+        long[] updated = new long[values.length + 1];
+        System.arraycopy(values, 0, updated, 0, at);
+        updated[at] = value;
+        System.arraycopy(values, at, updated, at + 1, values.length - at);
+        return updated;
+    }
+
+    private static long[] remove(long[] values, int at) {
+        long[] updated = new long[values.length - 1];
+        System.arraycopy(values, 0, updated, 0, at);
+        System.arraycopy(values, at + 1, updated, at, values.length - at - 1);
+        return updated;
+    }
+
+    private static final class Snapshot {
+        private final Map<Long, long[]> likesByUser = new HashMap<>();
+        private final LongLongHashMap likeCounts = new LongLongHashMap();
+        private final Map<Long, IntIntHashMap> coLikes = new HashMap<>();
+    }
+
+    // Лайки приходят сгруппированными по пользователю: список копится в буфере до смены пользователя
+    private final class LikesBuilder {
+        private final Snapshot snapshot;
+        private long[] buffer = new long[16];
+        private int size;
+        private long currentUser = -1;
+        private long skipped;
+
+        private LikesBuilder(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        void accept(long userId, long filmId) {
+            // Строки матрицы хранят ID фильмов как int, такие фильмы в матрицу не входят
+            if (filmId > Integer.MAX_VALUE) {
+                skipped++;
+                return;
+            }
+            if (userId != currentUser) {
+                flush();
+                currentUser = userId;
+            }
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = filmId;
+        }
+
+        void flush() {
+            if (size == 0) {
+                return;
+            }
+            long[] films = Arrays.copyOf(buffer, size);
+            size = 0;
+            snapshot.likesByUser.put(currentUser, films);
+            for (long filmId : films) {
+                snapshot.likeCounts.addTo(filmId, 1);
+            }
+            if (films.length <= maxUserLikes) {
+                addAllPairs(snapshot.coLikes, films, 1);
+            }
+        }
+    }
+
+    // Оценки кандидатов в параллельных массивах, позиция кандидата — в LongLongHashMap
+    private static final class Scores {
+        private final LongLongHashMap slots = new LongLongHashMap();
+        private long[] filmIds = new long[16];
+        private double[] values = new double[16];
+        private int size;
+
+        void add(long filmId, double score) {
+            long slot = slots.get(filmId, -1);
+            if (slot < 0) {
+                if (size == filmIds.length) {
+                    filmIds = Arrays.copyOf(filmIds, size * 2);
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                slot = size++;
+                slots.put(filmId, slot, -1);
+                filmIds[(int) slot] = filmId;
+            }
+            values[(int) slot] += score;
+        }
+    }
+
+    private static List<Long> toList(long[] filmIds) {
+        List<Long> list = new ArrayList<>(filmIds.length);
+        for (long filmId : filmIds) {
+            list.add(filmId);
+        }
+        return list;
+    }
+
+    // Соседи по убыванию сходства в параллельных массивах
+    private record Neighbors(long[] filmIds, double[] scores) {
+        static final Neighbors NONE = new Neighbors(EMPTY, new double[0]);
+    }
+
+    // Лучшие count фильмов: куча с худшим наверху, при равной оценке выше фильм с меньшим ID.
+    // Кандидат хуже вершины полной кучи отбрасывается без выделения памяти
+    private static final class TopK {
+        private static final Comparator<Scored> WORST_FIRST = Comparator.comparingDouble(Scored::score)
+                .thenComparing(Comparator.comparingLong(Scored::filmId).reversed());
+
+        private final int count;
+        private final PriorityQueue<Scored> heap;
+
+        private TopK(int count) {
+            this.count = count;
+            this.heap = new PriorityQueue<>(count + 1, WORST_FIRST);
+        }
+
+        void offer(long filmId, double score) {
+            if (heap.size() == count) {
+                Scored worst = heap.peek();
+                if (score < worst.score() || score == worst.score() && filmId > worst.filmId()) {
+                    return;
+                }
+            }
+            heap.add(new Scored(filmId, score));
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        }
+
+        Neighbors ranked() {
+            long[] filmIds = new long[heap.size()];
+            double[] scores = new double[heap.size()];
+            for (int i = filmIds.length - 1; i >= 0; i--) {
+                Scored scored = heap.poll();
+                filmIds[i] = scored.filmId();
+                scores[i] = scored.score();
+            }
+            return new Neighbors(filmIds, scores);
+        }
+    }
+
+    private record Scored(long filmId, double score) {
+    }
+}
@@ -0,0 +1,286 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.LongHashSet;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Списки друзей в памяти: для каждого пользователя отсортированный массив ID друзей.
+// Массивы не изменяются на месте, при записи подменяются копией
+@Component
+@Slf4j
+public class FriendshipIndex {
+    private static final long[] EMPTY = new long[0];
+
+    private final UserStorage userStorage;
+    private final int maxFanOut;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Рабочие массивы обхода переиспользуются между запросами: пул, а не ThreadLocal,
+    // потому что виртуальные потоки живут один запрос
+    private final Queue<Scratch> scratchPool = new ConcurrentLinkedQueue<>();
+
+    private volatile Map<Long, long[]> friendsByUser = new ConcurrentHashMap<>();
+    // Изменения, пришедшие во время перестройки: проигрываются поверх нового снимка
+    private List<long[]> changesDuringRebuild;
+
+    @Autowired
+    public FriendshipIndex(UserStorage userStorage,
+                           @Value("${filmorate.friends.suggestions.max-fan-out:100000}") int maxFanOut) {
+        this.userStorage = userStorage;
+        this.maxFanOut = maxFanOut;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            withLock(() -> changesDuringRebuild = new ArrayList<>());
+            AdjacencyBuilder builder = new AdjacencyBuilder();
+            userStorage.forEachFriendship(builder::accept);
+
+            Map<Long, long[]> newFriends = builder.build();
+            withLock(() -> {
+                friendsByUser = newFriends;
+                // Операции идемпотентны: связь, уже попавшая в снимок, повторно не добавляется
+                changesDuringRebuild.forEach(change -> apply(change[0], change[1], change[2] == 1));
+                changesDuringRebuild = null;
+            });
+            log.info("Индекс дружбы построен: {} пользователей со списками друзей", newFriends.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public long[] friendsOf(long userId) {
+        return friendsByUser.getOrDefault(userId, EMPTY);
+    }
+
+    public void addFriend(long userId, long friendId) {
+        change(userId, friendId, true);
+    }
+
+    public void removeFriend(long userId, long friendId) {
+        change(userId, friendId, false);
+    }
+
+    private void change(long userId, long friendId, boolean added) {
+        withLock(() -> {
+            apply(userId, friendId, added);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(new long[]{userId, friendId, added ? 1 : 0});
+            }
+        });
+    }
+
+    // Вызывается под блокировкой записи
+    private void apply(long userId, long friendId, boolean added) {
+        if (added) {
+            friendsByUser.compute(userId, (id, friends) -> {
+                long[] current = friends == null ? EMPTY : friends;
+                int position = Arrays.binarySearch(current, friendId);
+                if (position >= 0) {
+                    return current;
+                }
+
+                int insertAt = -position - 1;
+                long[] updated = new long[current.length + 1];
+                System.arraycopy(current, 0, updated, 0, insertAt);
+                updated[insertAt] = friendId;
+                System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+                return updated;
+            });
+        } else {
+            friendsByUser.computeIfPresent(userId, (id, friends) -> {
+                int position = Arrays.binarySearch(friends, friendId);
+                if (position < 0) {
+                    return friends;
+                }
+                if (friends.length == 1) {
+                    return null;
+                }
+
+                long[] updated = new long[friends.length - 1];
+                System.arraycopy(friends, 0, updated, 0, position);
+                System.arraycopy(friends, position + 1, updated, position, friends.length - position - 1);
+                return updated;
+            });
+        }
+    }
+
+    private void withLock(Runnable action) {
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Пересечение двух отсортированных массивов слиянием за O(n + m)
+    public long[] commonFriends(long userId, long otherId) {
+        long[] first = friendsOf(userId);
+        long[] second = friendsOf(otherId);
+        long[] common = new long[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, size);
+    }
+
+    // Друзья друзей, ранжированные по числу общих друзей (при равенстве — по возрастанию ID).
+    // Обход ограничен maxFanOut просмотренными связями второго уровня; друзья перебираются
+    // от менее связанных к более связанным, чтобы один «хаб» не выбрал весь лимит
+    public long[] suggestions(long userId, int count) {
+        long[] friends = friendsOf(userId);
+        if (friends.length == 0) {
+            return EMPTY;
+        }
+
+        Scratch scratch = scratchPool.poll();
+        if (scratch == null) {
+            scratch = new Scratch();
+        }
+        try {
+            return suggestions(userId, friends, count, scratch);
+        } finally {
+            scratch.reset();
+            scratchPool.offer(scratch);
+        }
+    }
+
+    private long[] suggestions(long userId, long[] friends, int count, Scratch scratch) {
+        scratch.exclude(userId);
+        for (long friendId : friends) {
+            scratch.exclude(friendId);
+        }
+
+        // Степень в старших 32 битах, позиция в младших: сортировка дает порядок по степени
+        long[][] friendLists = new long[friends.length][];
+        long[] order = new long[friends.length];
+        for (int i = 0; i < friends.length; i++) {
+            friendLists[i] = friendsOf(friends[i]);
+            order[i] = (long) friendLists[i].length << 32 | i;
+        }
+        Arrays.sort(order);
+
+        int budget = maxFanOut;
+        for (long packed : order) {
+            long[] candidates = friendLists[(int) packed];
+            for (int i = 0; i < candidates.length && budget > 0; i++, budget--) {
+                scratch.countMutual(candidates[i]);
+            }
+            if (budget == 0) {
+                log.debug("Подбор друзей для пользователя {} остановлен на лимите {} связей", userId, maxFanOut);
+                break;
+            }
+        }
+        return scratch.top(count);
+    }
+
+    // Связи приходят упорядоченными по (user_id, friend_id), поэтому массив
+    // каждого пользователя собирается за один проход в общем буфере
+    private static class AdjacencyBuilder {
+        private final Map<Long, long[]> friends = new ConcurrentHashMap<>();
+        private long[] buffer = new long[16];
+        private int size;
+        private long currentUser = -1;
+
+        void accept(long userId, long friendId) {
+            if (userId != currentUser) {
+                flush();
+                currentUser = userId;
+            }
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = friendId;
+        }
+
+        Map<Long, long[]> build() {
+            flush();
+            return friends;
+        }
+
+        private void flush() {
+            if (size > 0) {
+                friends.put(currentUser, Arrays.copyOf(buffer, size));
+                size = 0;
+            }
+        }
+    }
+
+    // Счетчики общих друзей по ID кандидата и множество исключенных (сам пользователь и его друзья).
+    // Хеш-таблицы растут по числу затронутых пользователей, а не по величине их ID,
+    // и после запроса очищаются с сохранением емкости
+    private static class Scratch {
+        private final LongLongHashMap mutual = new LongLongHashMap();
+        private final LongHashSet excluded = new LongHashSet();
+        private long[] touched = new long[64];
+        private int touchedSize;
+
+        void exclude(long userId) {
+            excluded.add(userId);
+        }
+
+        void countMutual(long userId) {
+            if (excluded.contains(userId)) {
+                return;
+            }
+            if (mutual.addTo(userId, 1) == 1) {
+                if (touchedSize == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedSize * 2);
+                }
+                touched[touchedSize++] = userId;
+            }
+        }
+
+        // Кандидаты сортируются по ID, затем ключом (MAX_VALUE - число общих) << 32 | позиция:
+        // больше общих друзей — меньше ключ, при равенстве выше меньший ID
+        long[] top(int count) {
+            long[] ids = Arrays.copyOf(touched, touchedSize);
+            Arrays.sort(ids);
+            long[] keys = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                keys[i] = (Integer.MAX_VALUE - mutual.get(ids[i], 0)) << 32 | i;
+            }
+            Arrays.sort(keys);
+
+            long[] result = new long[Math.min(count, keys.length)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = ids[(int) keys[i]];
+            }
+            return result;
+        }
+
+        void reset() {
+            mutual.clear();
+            excluded.clear();
+            touchedSize = 0;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+
+// Периодическая перестройка индексов и справочников в памяти. Нужна, когда с одной БД
+// работают несколько экземпляров: изменения, сделанные другим узлом, видны с задержкой
+// не больше интервала обновления
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "filmorate.indexes.refresh-interval-ms")
+@Slf4j
+public class IndexRefreshScheduler {
+    private final FilmPopularityIndex popularityIndex;
+    private final FriendshipIndex friendshipIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmFacetIndex facetIndex;
+    private final MpaDbStorage mpaDbStorage;
+    private final GenreDbStorage genreDbStorage;
+
+    @Autowired
+    public IndexRefreshScheduler(FilmPopularityIndex popularityIndex,
+                                 FriendshipIndex friendshipIndex,
+                                 FilmSimilarityIndex similarityIndex,
+                                 FilmSearchIndex searchIndex,
+                                 FilmFacetIndex facetIndex,
+                                 MpaDbStorage mpaDbStorage,
+                                 GenreDbStorage genreDbStorage) {
+        this.popularityIndex = popularityIndex;
+        this.friendshipIndex = friendshipIndex;
+        this.similarityIndex = similarityIndex;
+        this.searchIndex = searchIndex;
+        this.facetIndex = facetIndex;
+        this.mpaDbStorage = mpaDbStorage;
+        this.genreDbStorage = genreDbStorage;
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.indexes.refresh-interval-ms}",
+            fixedDelayString = "${filmorate.indexes.refresh-interval-ms}")
+    public void refresh() {
+        long started = System.nanoTime();
+        mpaDbStorage.refresh();
+        genreDbStorage.refresh();
+        popularityIndex.rebuild();
+        friendshipIndex.rebuild();
+        similarityIndex.rebuild();
+        searchIndex.rebuild();
+        facetIndex.rebuild();
+        log.debug("Индексы в памяти обновлены за {} мс", (System.nanoTime() - started) / 1_000_000);
+    }
+}
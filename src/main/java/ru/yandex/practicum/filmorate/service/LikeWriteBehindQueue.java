@@ -0,0 +1,244 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ServiceOverloadedException;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Отложенная запись лайков: события складываются в ограниченную очередь, фоновый поток
+// собирает их в пакеты и пишет последнее событие каждой пары одной транзакцией
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.write-behind.enabled", havingValue = "true")
+@Slf4j
+public class LikeWriteBehindQueue {
+
+    public enum Durability {
+        // ответ клиенту сразу после постановки в очередь
+        ENQUEUE,
+        // ответ клиенту после записи пакета в БД, ошибки возвращаются вызывающему
+        FLUSH
+    }
+
+    private final FilmDbStorage filmDbStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSimilarityIndex similarityIndex;
+    private final BlockingQueue<LikeEvent> queue;
+    private final Durability durability;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long enqueueTimeoutMs;
+    private final long flushTimeoutMs;
+    private final Thread flusher;
+
+    private volatile boolean running = true;
+
+    @Autowired
+    public LikeWriteBehindQueue(FilmDbStorage filmDbStorage,
+                                FilmPopularityIndex popularityIndex,
+                                FilmSimilarityIndex similarityIndex,
+                                @Value("${filmorate.likes.write-behind.queue-capacity:10000}") int queueCapacity,
+                                @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                                @Value("${filmorate.likes.write-behind.flush-interval-ms:5}") long flushIntervalMs,
+                                @Value("${filmorate.likes.write-behind.enqueue-timeout-ms:50}") long enqueueTimeoutMs,
+                                @Value("${filmorate.likes.write-behind.flush-timeout-ms:5000}") long flushTimeoutMs,
+                                @Value("${filmorate.likes.write-behind.durability:FLUSH}") Durability durability,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.filmDbStorage = filmDbStorage;
+        this.popularityIndex = popularityIndex;
+        this.similarityIndex = similarityIndex;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.flushTimeoutMs = flushTimeoutMs;
+        this.durability = durability;
+
+        // Виртуальные потоки всегда демоны; платформенный поток помечается явно
+        Thread.Builder builder = virtualThreads
+                ? Thread.ofVirtual()
+                : Thread.ofPlatform().daemon(true);
+        this.flusher = builder.name("like-write-behind").start(this::runFlusher);
+        log.info("Отложенная запись лайков включена: режим {}, пакет {}, интервал {} мс, виртуальный поток: {}",
+                durability, batchSize, flushIntervalMs, virtualThreads);
+    }
+
+    public void addLike(Long filmId, Long userId) {
+        submit(new LikeEvent(new Like(filmId, userId), true));
+    }
+
+    public void removeLike(Long filmId, Long userId) {
+        submit(new LikeEvent(new Like(filmId, userId), false));
+    }
+
+    private void submit(LikeEvent event) {
+        try {
+            if (!running || !queue.offer(event, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new ServiceOverloadedException("Очередь записи лайков переполнена, повторите запрос позже");
+            }
+            // Поток записи мог остановиться между проверкой и постановкой: событие забираем обратно
+            if (!running && queue.remove(event)) {
+                throw new ServiceOverloadedException("Запись лайков остановлена, повторите запрос позже");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Запрос прерван при постановке лайка в очередь");
+        }
+
+        if (durability == Durability.FLUSH) {
+            awaitFlush(event);
+        }
+    }
+
+    // Зависший поток записи не должен держать запросы бесконечно: по таймауту клиент получает 503,
+    // а событие остается в очереди и будет записано, когда поток освободится
+    private void awaitFlush(LikeEvent event) {
+        try {
+            event.result.get(flushTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceOverloadedException("Запись лайка не завершилась вовремя, повторите запрос позже");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException("Запрос прерван в ожидании записи лайка");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void runFlusher() {
+        List<LikeEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                LikeEvent first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                popularityIndex.recordLikes(() -> flush(batch));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                failPending(batch);
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ошибка при записи пакета лайков", e);
+                batch.forEach(event -> event.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Прерванный поток больше ничего не запишет: ожидающие запросы получают 503 сразу, а не по таймауту
+    private void failPending(List<LikeEvent> batch) {
+        queue.drainTo(batch);
+        log.error("Поток записи лайков прерван, отклонено событий: {}", batch.size());
+        ServiceOverloadedException error = new ServiceOverloadedException("Запись лайков остановлена, повторите запрос позже");
+        batch.forEach(event -> event.result.completeExceptionally(error));
+    }
+
+    private void flush(List<LikeEvent> batch) {
+        // Итог пары определяет ее последнее событие. Предыдущие события пары пишутся поштучно
+        // и по порядку: каждое получает тот же результат, что и при прямой записи, — дубликат
+        // лайка или несуществующий фильм не теряются за взаимным погашением
+        Map<Like, LikeEvent> last = new LinkedHashMap<>();
+        List<LikeEvent> earlier = new ArrayList<>();
+        for (LikeEvent event : batch) {
+            LikeEvent previous = last.put(event.like, event);
+            if (previous != null) {
+                earlier.add(previous);
+            }
+        }
+        earlier.forEach(this::applySingle);
+
+        List<Like> added = new ArrayList<>();
+        List<Like> removed = new ArrayList<>();
+        last.values().forEach(event -> (event.added ? added : removed).add(event.like));
+
+        try {
+            Set<Like> actuallyRemoved = new HashSet<>(filmDbStorage.saveLikeChanges(added, removed));
+            added.forEach(like -> {
+                popularityIndex.changeLikes(like.getFilmId(), 1);
+                similarityIndex.addLike(like.getFilmId(), like.getUserId());
+            });
+            actuallyRemoved.forEach(like -> {
+                popularityIndex.changeLikes(like.getFilmId(), -1);
+                similarityIndex.removeLike(like.getFilmId(), like.getUserId());
+            });
+            // Отмена, которой нечего было удалять, может ссылаться на несуществующие фильм
+            // или пользователя: такие отмены перепроверяются поштучной записью
+            last.values().forEach(event -> {
+                if (event.added || actuallyRemoved.contains(event.like)) {
+                    event.result.complete(null);
+                } else {
+                    applySingle(event);
+                }
+            });
+        } catch (DataAccessException e) {
+            // В пакете есть дубликат или ссылка на несуществующую запись: пишем поштучно,
+            // чтобы ошибка досталась только своему событию
+            log.debug("Пакет лайков отклонен ({}), поштучная запись", e.getMostSpecificCause().getMessage());
+            last.values().forEach(this::applySingle);
+        }
+    }
+
+    private void applySingle(LikeEvent event) {
+        Long filmId = event.like.getFilmId();
+        try {
+            if (event.added) {
+                filmDbStorage.addLike(filmId, event.like.getUserId());
+                popularityIndex.changeLikes(filmId, 1);
+                similarityIndex.addLike(filmId, event.like.getUserId());
+            } else if (filmDbStorage.removeLike(filmId, event.like.getUserId())) {
+                popularityIndex.changeLikes(filmId, -1);
+                similarityIndex.removeLike(filmId, event.like.getUserId());
+            }
+            event.result.complete(null);
+        } catch (RuntimeException e) {
+            if (durability == Durability.ENQUEUE) {
+                log.warn("Отложенная запись лайка {} отклонена: {}", event.like, e.getMessage());
+            }
+            event.result.completeExceptionally(e);
+        }
+    }
+
+    // Поток не прерывается: он дописывает уже принятые события и завершается сам
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private static final class LikeEvent {
+        private final Like like;
+        private final boolean added;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private LikeEvent(Like like, boolean added) {
+            this.like = like;
+            this.added = added;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Рекомендации по совместным лайкам. Порядок считается в памяти, из хранилища
+// догружаются только сами фильмы — как для популярного
+@Service
+@Slf4j
+public class RecommendationService {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final FilmSimilarityIndex similarityIndex;
+    private final FilmPopularityIndex popularityIndex;
+
+    @Autowired
+    public RecommendationService(FilmStorage filmStorage,
+                                 UserStorage userStorage,
+                                 FilmSimilarityIndex similarityIndex,
+                                 FilmPopularityIndex popularityIndex) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.similarityIndex = similarityIndex;
+        this.popularityIndex = popularityIndex;
+    }
+
+    public List<Film> getSimilarFilms(Long filmId, int count) {
+        requirePositive(count);
+        if (!filmStorage.existsById(filmId)) {
+            throw new NotFoundException(String.format("Фильм с ID %d не найден", filmId));
+        }
+        return filmStorage.findAllByIds(similarityIndex.similar(filmId, count));
+    }
+
+    // Если совместных лайков не хватает (новый пользователь, редкие фильмы),
+    // список дополняется популярными фильмами, которые пользователь еще не лайкнул
+    public List<Film> getRecommendations(Long userId, int count) {
+        requirePositive(count);
+        if (!userStorage.existsById(userId)) {
+            throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+        }
+
+        Set<Long> filmIds = new LinkedHashSet<>(similarityIndex.recommend(userId, count));
+        if (filmIds.size() < count) {
+            long[] liked = similarityIndex.likedFilms(userId);
+            for (Long filmId : popularityIndex.top(count + liked.length + filmIds.size())) {
+                if (filmIds.size() == count) {
+                    break;
+                }
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    filmIds.add(filmId);
+                }
+            }
+        }
+        log.debug("Рекомендации пользователю {}: {}", userId, filmIds);
+        return filmStorage.findAllByIds(new ArrayList<>(filmIds));
+    }
+
+    private static void requirePositive(int count) {
+        if (count <= 0) {
+            throw new ValidationException("Количество фильмов должно быть положительным");
+        }
+    }
+}
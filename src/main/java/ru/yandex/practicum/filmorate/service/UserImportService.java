@@ -0,0 +1,354 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserImportReport;
+import ru.yandex.practicum.filmorate.storage.LongLongHashMap;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Потоковый импорт пользователей и связей дружбы из CSV или NDJSON. Файл читается построчно,
+// в памяти держатся только текущие порции и отображение исходных ID в созданные
+// (два long на пользователя), поэтому расход памяти не зависит от объема файла.
+// Пользователь должен встречаться в файле раньше своих связей
+@Service
+@Slf4j
+public class UserImportService {
+
+    public enum Format {
+        // type,id,email,login,name,birthday для пользователя и type,userId,friendId для связи
+        CSV,
+        // {"type":"user","id":..,"email":..} и {"type":"friend","userId":..,"friendId":..}
+        NDJSON
+    }
+
+    private static final String USER_TYPE = "user";
+    private static final String FRIEND_TYPE = "friend";
+    private static final int MAX_REPORTED_ERRORS = 20;
+    // Исходный ID принят, но пользователь еще не записан в БД
+    private static final long PENDING = -1;
+    // Исходный ID встречался, но пользователь отклонен при записи (например, занятый адрес)
+    private static final long REJECTED = -2;
+    private static final long MISSING = 0;
+
+    private final UserStorage userStorage;
+    private final FriendshipIndex friendshipIndex;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final long progressEvery;
+
+    @Autowired
+    public UserImportService(UserStorage userStorage,
+                             FriendshipIndex friendshipIndex,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             @Value("${filmorate.import.chunk-size:500}") int chunkSize,
+                             @Value("${filmorate.import.progress-every:10000}") long progressEvery) {
+        this.userStorage = userStorage;
+        this.friendshipIndex = friendshipIndex;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.progressEvery = progressEvery;
+    }
+
+    public UserImportReport importUsers(InputStream input, Format format) throws IOException {
+        Import job = new Import();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (format == Format.CSV && isCsvHeader(line))) {
+                continue;
+            }
+
+            job.report.setRecords(job.report.getRecords() + 1);
+            try {
+                ImportRecord record = format == Format.CSV ? parseCsv(line) : parseNdjson(line);
+                job.accept(record);
+            } catch (ValidationException e) {
+                job.skip(String.format("Строка %d: %s", lineNumber, e.getMessage()));
+            }
+
+            if (job.report.getRecords() % progressEvery == 0) {
+                log.info("Импорт пользователей: обработано {} записей, {} записей/с",
+                        job.report.getRecords(), job.recordsPerSecond());
+            }
+        }
+        job.flushUsers();
+        job.flushFriendships();
+
+        UserImportReport report = job.report;
+        report.setElapsedMs((System.nanoTime() - job.started) / 1_000_000);
+        report.setRecordsPerSecond(job.recordsPerSecond());
+        log.info("Импорт пользователей завершен: записей {}, пользователей {}, связей {}, пропущено {}, {} мс",
+                report.getRecords(), report.getUsers(), report.getFriendships(), report.getSkipped(),
+                report.getElapsedMs());
+        return report;
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.regionMatches(true, 0, "type,", 0, 5);
+    }
+
+    private ImportRecord parseNdjson(String line) {
+        try {
+            return objectMapper.readValue(line, ImportRecord.class);
+        } catch (JsonProcessingException e) {
+            throw new ValidationException("некорректный формат записи");
+        }
+    }
+
+    private static ImportRecord parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        ImportRecord record = new ImportRecord();
+        record.setType(fields.get(0).trim());
+        try {
+            if (FRIEND_TYPE.equalsIgnoreCase(record.getType())) {
+                requireFields(fields, 3);
+                record.setUserId(parseId(fields.get(1)));
+                record.setFriendId(parseId(fields.get(2)));
+            } else {
+                requireFields(fields, 6);
+                record.setId(parseId(fields.get(1)));
+                record.setEmail(emptyToNull(fields.get(2)));
+                record.setLogin(emptyToNull(fields.get(3)));
+                record.setName(emptyToNull(fields.get(4)));
+                String birthday = emptyToNull(fields.get(5));
+                record.setBirthday(birthday == null ? null : LocalDate.parse(birthday.trim()));
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new ValidationException("некорректный формат записи");
+        }
+        return record;
+    }
+
+    // Поля через запятую, значение в двойных кавычках может содержать запятые и "" внутри
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static void requireFields(List<String> fields, int count) {
+        if (fields.size() < count) {
+            throw new ValidationException(String.format("ожидается %d полей, получено %d", count, fields.size()));
+        }
+    }
+
+    private static Long parseId(String value) {
+        return value.isBlank() ? null : Long.parseLong(value.trim());
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void requirePositive(Long id, String field) {
+        if (id == null || id <= 0) {
+            throw new ValidationException(String.format("поле %s должно быть положительным числом", field));
+        }
+    }
+
+    // Состояние одного импорта: порции, ожидающие записи, и отображение исходных ID
+    private final class Import {
+        private final long started = System.nanoTime();
+        private final UserImportReport report = new UserImportReport();
+        private final LongLongHashMap idMapping = new LongLongHashMap();
+
+        private final List<User> pendingUsers = new ArrayList<>(chunkSize);
+        private final long[] pendingSourceIds = new long[chunkSize];
+        private final long[] pendingFriendUsers = new long[chunkSize];
+        private final long[] pendingFriendFriends = new long[chunkSize];
+        private int pendingFriendships;
+
+        void accept(ImportRecord record) {
+            if (USER_TYPE.equalsIgnoreCase(record.getType())) {
+                acceptUser(record);
+            } else if (FRIEND_TYPE.equalsIgnoreCase(record.getType())) {
+                acceptFriendship(record);
+            } else {
+                throw new ValidationException(String.format("неизвестный тип записи '%s'", record.getType()));
+            }
+        }
+
+        private void acceptUser(ImportRecord record) {
+            requirePositive(record.getId(), "id");
+            User user = new User();
+            user.setEmail(record.getEmail());
+            user.setLogin(record.getLogin());
+            user.setName(record.getName());
+            user.setBirthday(record.getBirthday());
+
+            Set<ConstraintViolation<User>> violations = validator.validate(user);
+            if (!violations.isEmpty()) {
+                throw new ValidationException(violations.iterator().next().getMessage());
+            }
+            if (user.getBirthday() == null) {
+                throw new ValidationException("Дата рождения должна быть указана");
+            }
+            if (idMapping.containsKey(record.getId())) {
+                throw new ValidationException(String.format("пользователь с исходным ID %d уже встречался",
+                        record.getId()));
+            }
+
+            idMapping.put(record.getId(), PENDING, MISSING);
+            pendingSourceIds[pendingUsers.size()] = record.getId();
+            pendingUsers.add(user);
+            if (pendingUsers.size() == chunkSize) {
+                flushUsers();
+            }
+        }
+
+        private void acceptFriendship(ImportRecord record) {
+            requirePositive(record.getUserId(), "userId");
+            requirePositive(record.getFriendId(), "friendId");
+            if (record.getUserId().equals(record.getFriendId())) {
+                throw new ValidationException("Нельзя добавить самого себя в друзья");
+            }
+
+            pendingFriendUsers[pendingFriendships] = record.getUserId();
+            pendingFriendFriends[pendingFriendships] = record.getFriendId();
+            pendingFriendships++;
+            if (pendingFriendships == chunkSize) {
+                flushFriendships();
+            }
+        }
+
+        void flushUsers() {
+            if (pendingUsers.isEmpty()) {
+                return;
+            }
+            try {
+                List<Long> ids = userStorage.createAll(pendingUsers);
+                for (int i = 0; i < ids.size(); i++) {
+                    idMapping.put(pendingSourceIds[i], ids.get(i), MISSING);
+                }
+                report.setUsers(report.getUsers() + ids.size());
+            } catch (DataIntegrityViolationException e) {
+                // Порция откатилась целиком: пишем поштучно, чтобы отклонить только конфликтующие записи
+                log.debug("Порция пользователей отклонена ({}), поштучная запись",
+                        e.getMostSpecificCause().getMessage());
+                createOneByOne();
+            }
+            pendingUsers.clear();
+        }
+
+        private void createOneByOne() {
+            for (int i = 0; i < pendingUsers.size(); i++) {
+                User user = pendingUsers.get(i);
+                try {
+                    idMapping.put(pendingSourceIds[i], userStorage.create(user).getId(), MISSING);
+                    report.setUsers(report.getUsers() + 1);
+                } catch (DataIntegrityViolationException e) {
+                    idMapping.put(pendingSourceIds[i], REJECTED, MISSING);
+                    skip(String.format("Пользователь с исходным ID %d: адрес %s уже занят",
+                            pendingSourceIds[i], user.getEmail()));
+                }
+            }
+        }
+
+        // Связи могут ссылаться на пользователей из текущей порции, поэтому она записывается первой
+        void flushFriendships() {
+            if (pendingFriendships == 0) {
+                return;
+            }
+            flushUsers();
+
+            List<Friendship> friendships = new ArrayList<>(pendingFriendships);
+            for (int i = 0; i < pendingFriendships; i++) {
+                long userId = idMapping.get(pendingFriendUsers[i], MISSING);
+                long friendId = idMapping.get(pendingFriendFriends[i], MISSING);
+                if (userId == REJECTED || friendId == REJECTED) {
+                    long rejected = userId == REJECTED ? pendingFriendUsers[i] : pendingFriendFriends[i];
+                    skip(String.format("Связь %d -> %d: пользователь с исходным ID %d не импортирован",
+                            pendingFriendUsers[i], pendingFriendFriends[i], rejected));
+                    continue;
+                }
+                if (userId == MISSING || friendId == MISSING) {
+                    long unknown = userId == MISSING ? pendingFriendUsers[i] : pendingFriendFriends[i];
+                    skip(String.format("Связь %d -> %d: пользователь с исходным ID %d не найден в файле",
+                            pendingFriendUsers[i], pendingFriendFriends[i], unknown));
+                    continue;
+                }
+                friendships.add(new Friendship(userId, friendId));
+            }
+
+            userStorage.addFriendships(friendships);
+            friendships.forEach(friendship ->
+                    friendshipIndex.addFriend(friendship.getUserId(), friendship.getFriendId()));
+            report.setFriendships(report.getFriendships() + friendships.size());
+            pendingFriendships = 0;
+        }
+
+        void skip(String error) {
+            report.setSkipped(report.getSkipped() + 1);
+            if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+                report.getErrors().add(error);
+            }
+        }
+
+        long recordsPerSecond() {
+            long elapsedNanos = Math.max(1, System.nanoTime() - started);
+            return report.getRecords() * 1_000_000_000L / elapsedNanos;
+        }
+    }
+
+    @Data
+    static class ImportRecord {
+        private String type;
+        private Long id;
+        private String email;
+        private String login;
+        private String name;
+        private LocalDate birthday;
+        private Long userId;
+        private Long friendId;
+    }
+}
@@ -2,23 +2,32 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.util.Arrays;
 import java.util.List;
 
 @Service
 @Slf4j
 public class UserService {
-    private final UserDbStorage userDbStorage;
+    private static final int LOCK_STRIPES = 64;
+
+    // Запись в хранилище и правка индекса для одной пары идут под одной блокировкой,
+    // иначе встречные add/remove могут применить индекс в другом порядке, чем БД
+    private final StripedLocks friendshipLocks = new StripedLocks(LOCK_STRIPES);
+    private final UserStorage userStorage;
+    private final FriendshipIndex friendshipIndex;
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserDbStorage userDbStorage) {
-        this.userDbStorage = userDbStorage;
+    public UserService(UserStorage userStorage,
+                       FriendshipIndex friendshipIndex) {
+        this.userStorage = userStorage;
+        this.friendshipIndex = friendshipIndex;
     }
 
     public void addFriend(Long userId, Long friendId) {
@@ -26,58 +35,64 @@ public class UserService {
             throw new ValidationException("Нельзя добавить самого себя в друзья");
         }
 
-        if (!userDbStorage.existsById(userId)) {
-            throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
-        }
+        // Проверки существования пользователей выполняет сама вставка в хранилище
+        friendshipLocks.write(pairKey(userId, friendId), () -> {
+            userStorage.addFriend(userId, friendId);
+            friendshipIndex.addFriend(userId, friendId);
+            return null;
+        });
+    }
 
-        if (!userDbStorage.existsById(friendId)) {
-            throw new NotFoundException(String.format("Пользователь с ID %d не найден", friendId));
-        }
+    public void confirmFriend(Long userId, Long friendId) {
+        userStorage.confirmFriend(userId, friendId);
+    }
 
-        userDbStorage.addFriend(userId, friendId);
+    public void removeFriend(Long userId, Long friendId) {
+        friendshipLocks.write(pairKey(userId, friendId), () -> {
+            userStorage.removeFriend(userId, friendId);
+            friendshipIndex.removeFriend(userId, friendId);
+            return null;
+        });
     }
 
-    public void confirmFriend(Long userId, Long friendId) {
-        if (!userDbStorage.existsById(userId)) {
+    public List<User> getFriends(Long userId) {
+        if (!userStorage.existsById(userId)) {
             throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
         }
 
-        if (!userDbStorage.existsById(friendId)) {
-            throw new NotFoundException(String.format("Пользователь с ID %d не найден", friendId));
-        }
-
-        userDbStorage.confirmFriend(userId, friendId);
+        return userStorage.findAllByIds(toList(friendshipIndex.friendsOf(userId)));
     }
 
-    public void removeFriend(Long userId, Long friendId) {
-        if (!userDbStorage.existsById(userId)) {
+    public List<User> getCommonFriends(Long userId, Long otherId) {
+        if (!userStorage.existsById(userId)) {
             throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
         }
 
-        if (!userDbStorage.existsById(friendId)) {
-            throw new NotFoundException(String.format("Пользователь с ID %d не найден", friendId));
+        if (!userStorage.existsById(otherId)) {
+            throw new NotFoundException(String.format("Пользователь с ID %d не найден", otherId));
         }
 
-        userDbStorage.removeFriend(userId, friendId);
+        // Пересечение считается в памяти, из хранилища одним запросом читаются только сами пользователи
+        return userStorage.findAllByIds(toList(friendshipIndex.commonFriends(userId, otherId)));
     }
 
-    public List<User> getFriends(Long userId) {
-        if (!userDbStorage.existsById(userId)) {
+    public List<User> getFriendSuggestions(Long userId, int count) {
+        if (count <= 0) {
+            throw new ValidationException("Количество пользователей должно быть положительным");
+        }
+        if (!userStorage.existsById(userId)) {
             throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
         }
 
-        return userDbStorage.getFriends(userId);
+        // Обход графа — в индексе дружбы, вместо самосоединения friendships в SQL
+        return userStorage.findAllByIds(toList(friendshipIndex.suggestions(userId, count)));
     }
 
-    public List<User> getCommonFriends(Long userId, Long otherId) {
-        if (!userDbStorage.existsById(userId)) {
-            throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
-        }
-
-        if (!userDbStorage.existsById(otherId)) {
-            throw new NotFoundException(String.format("Пользователь с ID %d не найден", otherId));
-        }
+    private static long pairKey(long userId, long friendId) {
+        return userId * 31 + friendId;
+    }
 
-        return userDbStorage.getCommonFriends(userId, otherId);
+    private static List<Long> toList(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
     }
 }
\ No newline at end of file
@@ -1,27 +1,41 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Repository
 @Slf4j
 public class GenreDbStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    // Справочник жанров читается из БД один раз и обновляется через refresh()
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile ReferenceDataSnapshot<Genre> snapshot;
 
     @Autowired
     public GenreDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
     }
 
     private final RowMapper<Genre> genreRowMapper = new RowMapper<Genre>() {
@@ -34,27 +48,74 @@ public class GenreDbStorage {
         }
     };
 
+    // ReentrantLock вместо synchronized: виртуальный поток, ждущий ответа БД под монитором,
+    // закрепил бы за собой поток-носитель
+    @PostConstruct
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            String sql = "SELECT * FROM genres ORDER BY id";
+            snapshot = new ReferenceDataSnapshot<>(jdbcTemplate.query(sql, genreRowMapper),
+                    Genre::getId,
+                    genre -> new Genre(genre.getId(), genre.getName()));
+            log.info("Справочник жанров загружен: {} записей", snapshot.size());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
     public List<Genre> getAllGenres() {
-        String sql = "SELECT * FROM genres ORDER BY id";
-        return jdbcTemplate.query(sql, genreRowMapper);
+        return snapshot.all();
     }
 
     public Optional<Genre> getGenreById(Long id) {
-        String sql = "SELECT * FROM genres WHERE id = ?";
-        try {
-            Genre genre = jdbcTemplate.queryForObject(sql, genreRowMapper, id);
-            return Optional.ofNullable(genre);
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
-        }
+        return snapshot.get(id);
+    }
+
+    public boolean existsById(Long id) {
+        return snapshot.contains(id);
+    }
+
+    // Версия текущего снимка справочника
+    public String getVersion() {
+        return snapshot.version();
     }
 
     public List<Genre> getGenresByFilmId(Long filmId) {
-        String sql = "SELECT g.* FROM genres g " +
-                "JOIN film_genres fg ON g.id = fg.genre_id " +
-                "WHERE fg.film_id = ? " +
-                "ORDER BY g.id"; // Важно: сортировка по ID
+        return List.copyOf(getGenresByFilmIds(List.of(filmId)).getOrDefault(filmId, Set.of()));
+    }
+
+    // Жанры сразу для набора фильмов одним запросом
+    public Map<Long, Set<Genre>> getGenresByFilmIds(Collection<Long> filmIds) {
+        Map<Long, Set<Genre>> genresByFilm = new HashMap<>();
+        if (filmIds.isEmpty()) {
+            return genresByFilm;
+        }
+
+        String sql = "SELECT film_id, genre_id FROM film_genres " +
+                "WHERE film_id IN (:filmIds) " +
+                "ORDER BY film_id, genre_id"; // Важно: сортировка по ID
+
+        namedJdbcTemplate.query(sql, Map.of("filmIds", filmIds), collectGenres(genresByFilm));
+        return genresByFilm;
+    }
+
+    // Жанры всех фильмов каталога одним проходом по film_genres
+    public Map<Long, Set<Genre>> getAllFilmGenres() {
+        Map<Long, Set<Genre>> genresByFilm = new HashMap<>();
+        String sql = "SELECT film_id, genre_id FROM film_genres ORDER BY film_id, genre_id";
+
+        jdbcTemplate.query(sql, collectGenres(genresByFilm));
+        return genresByFilm;
+    }
 
-        return jdbcTemplate.query(sql, genreRowMapper, filmId);
+    // Названия жанров берутся из снимка справочника, без JOIN с genres
+    private RowCallbackHandler collectGenres(Map<Long, Set<Genre>> genresByFilm) {
+        ReferenceDataSnapshot<Genre> genres = snapshot;
+        return rs -> {
+            long filmId = rs.getLong("film_id");
+            genres.get(rs.getLong("genre_id"))
+                    .ifPresent(genre -> genresByFilm.computeIfAbsent(filmId, id -> new LinkedHashSet<>()).add(genre));
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+// Множество long без упаковки в Long: открытая адресация с линейным пробированием.
+// Не потокобезопасно, доступ синхронизируется владельцем (см. StripedLocks)
+public final class LongHashSet {
+    private static final long FREE = 0;
+    private static final int MIN_CAPACITY = 4;
+
+    // ID в хранилищах положительные, поэтому 0 служит признаком пустой ячейки
+    private long[] slots;
+    private int size;
+
+    public LongHashSet() {
+        slots = new long[MIN_CAPACITY];
+    }
+
+    public boolean add(long value) {
+        requirePositive(value);
+        if ((size + 1) * 2 > slots.length) {
+            resize(slots.length * 2);
+        }
+
+        int index = indexOf(slots, value);
+        if (slots[index] == value) {
+            return false;
+        }
+        slots[index] = value;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long value) {
+        if (value <= 0) {
+            return false;
+        }
+
+        int index = indexOf(slots, value);
+        if (slots[index] != value) {
+            return false;
+        }
+
+        // Сдвиг следующих элементов цепочки, чтобы не оставлять «дыр» в пробировании
+        int mask = slots.length - 1;
+        int gap = index;
+        int next = (gap + 1) & mask;
+        while (slots[next] != FREE) {
+            int home = hash(slots[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                slots[gap] = slots[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[gap] = FREE;
+        size--;
+        return true;
+    }
+
+    public boolean contains(long value) {
+        return value > 0 && slots[indexOf(slots, value)] == value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Емкость сохраняется: очищенное множество переиспользуется без новых выделений
+    public void clear() {
+        Arrays.fill(slots, FREE);
+        size = 0;
+    }
+
+    // Копия элементов по возрастанию
+    public long[] toSortedArray() {
+        long[] values = new long[size];
+        int position = 0;
+        for (long slot : slots) {
+            if (slot != FREE) {
+                values[position++] = slot;
+            }
+        }
+        Arrays.sort(values);
+        return values;
+    }
+
+    private void resize(int capacity) {
+        long[] newSlots = new long[capacity];
+        for (long slot : slots) {
+            if (slot != FREE) {
+                newSlots[indexOf(newSlots, slot)] = slot;
+            }
+        }
+        slots = newSlots;
+    }
+
+    private static int indexOf(long[] slots, long value) {
+        int mask = slots.length - 1;
+        int index = hash(value) & mask;
+        while (slots[index] != FREE && slots[index] != value) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int hash(long value) {
+        long mixed = value * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static void requirePositive(long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("ID должен быть положительным: " + value);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+
+// Отображение long -> long без упаковки: открытая адресация с линейным пробированием,
+// ключи и значения в параллельных массивах. Не потокобезопасно, удаление не поддерживается
+public final class LongLongHashMap {
+    private static final long FREE = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    // Ключи положительные, поэтому 0 служит признаком пустой ячейки
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    public LongLongHashMap() {
+        keys = new long[MIN_CAPACITY];
+        values = new long[MIN_CAPACITY];
+    }
+
+    // Возвращает прежнее значение или missing, если ключа не было
+    public long put(long key, long value, long missing) {
+        requirePositive(key);
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        int index = indexOf(keys, key);
+        if (keys[index] == key) {
+            long previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        return missing;
+    }
+
+    // Прибавляет delta к значению (отсутствующий ключ считается нулем), возвращает новое значение
+    public long addTo(long key, long delta) {
+        requirePositive(key);
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+
+        int index = indexOf(keys, key);
+        if (keys[index] != key) {
+            keys[index] = key;
+            size++;
+        }
+        values[index] += delta;
+        return values[index];
+    }
+
+    public long get(long key, long missing) {
+        if (key <= 0) {
+            return missing;
+        }
+        int index = indexOf(keys, key);
+        return keys[index] == key ? values[index] : missing;
+    }
+
+    public boolean containsKey(long key) {
+        return key > 0 && keys[indexOf(keys, key)] == key;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Емкость сохраняется: очищенное отображение переиспользуется без новых выделений
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] newKeys = new long[capacity];
+        long[] newValues = new long[capacity];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                int index = indexOf(newKeys, keys[i]);
+                newKeys[index] = keys[i];
+                newValues[index] = values[i];
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+
+    private static int indexOf(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int index = hash(key) & mask;
+        while (keys[index] != FREE && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static void requirePositive(long key) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Ключ должен быть положительным: " + key);
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
@@ -12,6 +12,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Repository
 @Slf4j
@@ -19,6 +20,10 @@ public class MpaDbStorage {
 
     private final JdbcTemplate jdbcTemplate;
 
+    // Справочник рейтингов читается из БД один раз и обновляется через refresh()
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile ReferenceDataSnapshot<MpaRating> snapshot;
+
     @Autowired
     public MpaDbStorage(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
@@ -35,18 +40,34 @@ public class MpaDbStorage {
         }
     };
 
+    @PostConstruct
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            String sql = "SELECT * FROM mpa_ratings ORDER BY id";
+            snapshot = new ReferenceDataSnapshot<>(jdbcTemplate.query(sql, mpaRowMapper),
+                    MpaRating::getId,
+                    mpa -> new MpaRating(mpa.getId(), mpa.getName(), mpa.getDescription()));
+            log.info("Справочник рейтингов MPA загружен: {} записей", snapshot.size());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
     public List<MpaRating> getAllMpaRatings() {
-        String sql = "SELECT * FROM mpa_ratings ORDER BY id";
-        return jdbcTemplate.query(sql, mpaRowMapper);
+        return snapshot.all();
     }
 
     public Optional<MpaRating> getMpaById(Long id) {
-        String sql = "SELECT * FROM mpa_ratings WHERE id = ?";
-        try {
-            MpaRating mpa = jdbcTemplate.queryForObject(sql, mpaRowMapper, id);
-            return Optional.ofNullable(mpa);
-        } catch (EmptyResultDataAccessException e) {
-            return Optional.empty();
-        }
+        return snapshot.get(id);
+    }
+
+    public boolean existsById(Long id) {
+        return snapshot.contains(id);
+    }
+
+    // Версия текущего снимка справочника
+    public String getVersion() {
+        return snapshot.version();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+// Неизменяемый снимок справочника, индексированный по ID в массиве.
+// Наружу отдаются копии, чтобы вызывающий код не мог изменить снимок
+class ReferenceDataSnapshot<T> {
+    private final Object[] byId;
+    private final List<T> ordered;
+    private final UnaryOperator<T> copier;
+    // Хеш содержимого: одинаков на всех узлах для одних и тех же данных, служит ETag справочника
+    private final String version;
+
+    ReferenceDataSnapshot(List<T> items, ToLongFunction<T> idOf, UnaryOperator<T> copier) {
+        long maxId = items.stream().mapToLong(idOf).max().orElse(0);
+        this.byId = new Object[Math.toIntExact(maxId + 1)];
+        for (T item : items) {
+            byId[(int) idOf.applyAsLong(item)] = item;
+        }
+        this.ordered = List.copyOf(items);
+        this.copier = copier;
+        this.version = Integer.toHexString(ordered.hashCode());
+    }
+
+    @SuppressWarnings("unchecked")
+    Optional<T> get(Long id) {
+        if (id == null || id < 0 || id >= byId.length) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable((T) byId[id.intValue()]).map(copier);
+    }
+
+    boolean contains(Long id) {
+        return id != null && id >= 0 && id < byId.length && byId[id.intValue()] != null;
+    }
+
+    List<T> all() {
+        List<T> copies = new ArrayList<>(ordered.size());
+        for (T item : ordered) {
+            copies.add(copier.apply(item));
+        }
+        return copies;
+    }
+
+    String version() {
+        return version;
+    }
+
+    int size() {
+        return ordered.size();
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Фиксированный набор блокировок чтения/записи, выбираемых по ID записи:
+// операции над разными записями почти никогда не конкурируют за одну блокировку
+public final class StripedLocks {
+    private final ReadWriteLock[] stripes;
+
+    public StripedLocks(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReadWriteLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    public <T> T read(long key, Supplier<T> action) {
+        return call(stripe(key).readLock(), action);
+    }
+
+    public <T> T write(long key, Supplier<T> action) {
+        return call(stripe(key).writeLock(), action);
+    }
+
+    private ReadWriteLock stripe(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (mixed >>> 32) & (stripes.length - 1)];
+    }
+
+    private static <T> T call(Lock lock, Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -3,41 +3,63 @@ package ru.yandex.practicum.filmorate.storage.film;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository
 @Primary
 @Slf4j
 @Qualifier("filmDbStorage")
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "db", matchIfMissing = true)
 public class FilmDbStorage implements FilmStorage {
 
+    private static final String FILM_SELECT = "SELECT f.* FROM film f ";
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
     private final GenreDbStorage genreDbStorage;
     private final MpaDbStorage mpaDbStorage;
     private final RowMapper<Film> filmRowMapper;
+    private final boolean verifyWrites;
 
     @Autowired
     public FilmDbStorage(JdbcTemplate jdbcTemplate,
                          GenreDbStorage genreDbStorage,
-                         MpaDbStorage mpaDbStorage) {
+                         MpaDbStorage mpaDbStorage,
+                         @Value("${filmorate.storage.verify-writes:false}") boolean verifyWrites) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
         this.genreDbStorage = genreDbStorage;
         this.mpaDbStorage = mpaDbStorage;
+        this.verifyWrites = verifyWrites;
 
         this.filmRowMapper = (rs, rowNum) -> {
             Film film = new Film();
@@ -52,7 +74,8 @@ public class FilmDbStorage implements FilmStorage {
 
             film.setDuration(rs.getInt("duration"));
 
-            Long mpaId = rs.getLong("mpa_rating_id");
+            // Рейтинг MPA берется из снимка справочника в памяти, без запроса на каждую строку
+            long mpaId = rs.getLong("mpa_rating_id");
             if (!rs.wasNull()) {
                 film.setMpa(mpaDbStorage.getMpaById(mpaId).orElse(null));
             }
@@ -63,32 +86,40 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public Collection<Film> findAll() {
-        String sql = "SELECT * FROM film ORDER BY id";
+        String sql = FILM_SELECT + "ORDER BY f.id";
         List<Film> films = jdbcTemplate.query(sql, filmRowMapper);
 
-        films.forEach(film -> {
-            film.setGenres(new LinkedHashSet<>(genreDbStorage.getGenresByFilmId(film.getId())));
-            film.setLikes(new HashSet<>(getLikesByFilmId(film.getId())));
-        });
-
+        // Весь каталог: жанры и лайки читаются целиком, по одному запросу на таблицу
+        attachGenresAndLikes(films, genreDbStorage.getAllFilmGenres(), getAllLikes());
         return films;
     }
 
     @Override
-    public Film create(Film film) {
-        // Проверка существования MPA (дополнительная защита)
-        if (!mpaDbStorage.getMpaById(film.getMpa().getId()).isPresent()) {
-            throw new NotFoundException(String.format("MPA рейтинг с ID %d не найден", film.getMpa().getId()));
-        }
+    public List<Film> findPage(long afterId, int limit) {
+        String sql = FILM_SELECT + "WHERE f.id > ? ORDER BY f.id LIMIT ?";
+        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, afterId, limit);
+        hydrate(films);
+        return films;
+    }
 
-        // Проверка существования жанров (дополнительная защита)
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            for (Genre genre : film.getGenres()) {
-                if (!genreDbStorage.getGenreById(genre.getId()).isPresent()) {
-                    throw new NotFoundException(String.format("Жанр с ID %d не найден", genre.getId()));
-                }
+    // Каталог читается порциями по ключу, в памяти одновременно не больше одной порции
+    @Override
+    public void forEach(Consumer<Film> consumer) {
+        long afterId = 0;
+        List<Film> chunk;
+        do {
+            chunk = findPage(afterId, STREAM_CHUNK_SIZE);
+            chunk.forEach(consumer);
+            if (!chunk.isEmpty()) {
+                afterId = chunk.get(chunk.size() - 1).getId();
             }
-        }
+        } while (chunk.size() == STREAM_CHUNK_SIZE);
+    }
+
+    @Override
+    public Film create(Film film) {
+        // Проверка ссылок на MPA и жанры (дополнительная защита) с подстановкой названий
+        resolveReferenceData(film);
 
         String sql = "INSERT INTO film (name, description, release_date, duration, mpa_rating_id) " +
                 "VALUES (?, ?, ?, ?, ?)";
@@ -112,30 +143,79 @@ public class FilmDbStorage implements FilmStorage {
             saveFilmGenres(filmId, film.getGenres());
         }
 
+        film.setLikes(new HashSet<>());
+
         log.info("Фильм создан с ID: {}", filmId);
-        return findById(filmId).orElseThrow(() ->
-                new NotFoundException(String.format("Фильм с ID %d не найден после создания", filmId))
-        );
+        return verifyWrite(film);
     }
 
+    // Один пакет INSERT для фильмов и один для жанров в одной транзакции
     @Override
-    public Film update(Film film) {
-        // Проверка существования MPA (дополнительная защита)
-        if (!mpaDbStorage.getMpaById(film.getMpa().getId()).isPresent()) {
-            throw new NotFoundException(String.format("MPA рейтинг с ID %d не найден", film.getMpa().getId()));
+    @Transactional
+    public List<Long> createAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        // Проверка существования жанров (дополнительная защита)
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            for (Genre genre : film.getGenres()) {
-                if (!genreDbStorage.getGenreById(genre.getId()).isPresent()) {
-                    throw new NotFoundException(String.format("Жанр с ID %d не найден", genre.getId()));
-                }
+        films.forEach(this::resolveReferenceData);
+
+        String sql = "INSERT INTO film (name, description, release_date, duration, mpa_rating_id) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement stmt, int i) throws SQLException {
+                        Film film = films.get(i);
+                        stmt.setString(1, film.getName());
+                        stmt.setString(2, film.getDescription());
+                        stmt.setDate(3, java.sql.Date.valueOf(film.getReleaseDate()));
+                        stmt.setInt(4, film.getDuration());
+                        stmt.setLong(5, film.getMpa().getId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != films.size()) {
+            throw new IllegalStateException(String.format(
+                    "Получено %d сгенерированных ID для %d фильмов", keys.size(), films.size()));
+        }
+
+        List<Long> ids = new ArrayList<>(films.size());
+        List<Object[]> genreArgs = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            Long filmId = ((Number) keys.get(i).values().iterator().next()).longValue();
+            film.setId(filmId);
+            ids.add(filmId);
+            if (film.getGenres() != null) {
+                film.getGenres().forEach(genre -> genreArgs.add(new Object[]{filmId, genre.getId()}));
             }
         }
 
+        if (!genreArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genreArgs);
+        }
+
+        log.info("Пакетно создано фильмов: {}", ids.size());
+        return ids;
+    }
+
+    // Строка фильма и жанры меняются одной транзакцией: новая версия не видна со старыми жанрами
+    @Override
+    @Transactional
+    public Film update(Film film) {
+        // Проверка ссылок на MPA и жанры (дополнительная защита) с подстановкой названий
+        resolveReferenceData(film);
+
         String sql = "UPDATE film SET name = ?, description = ?, release_date = ?, " +
-                "duration = ?, mpa_rating_id = ? WHERE id = ?";
+                "duration = ?, mpa_rating_id = ?, version = NEXT VALUE FOR film_version_seq WHERE id = ?";
 
         int updatedRows = jdbcTemplate.update(sql,
                 film.getName(),
@@ -151,20 +231,55 @@ public class FilmDbStorage implements FilmStorage {
 
         updateFilmGenres(film.getId(), film.getGenres());
 
+        // Лайки не входят в обновляемые поля, из БД читаются только они
+        film.setLikes(getLikesByFilmIds(List.of(film.getId())).getOrDefault(film.getId(), new HashSet<>()));
+
         log.info("Фильм с ID {} обновлен", film.getId());
-        return findById(film.getId()).orElseThrow(() ->
-                new NotFoundException(String.format("Фильм с ID %d не найден после обновления", film.getId()))
-        );
+        return verifyWrite(film);
+    }
+
+    // Ответ на запись собирается из входных данных и снимков справочников. В режиме проверки
+    // фильм перечитывается из БД, расхождение с собранным ответом пишется в лог
+    private Film verifyWrite(Film written) {
+        if (!verifyWrites) {
+            return written;
+        }
+
+        Film stored = findById(written.getId()).orElseThrow(() ->
+                new NotFoundException(String.format("Фильм с ID %d не найден после записи", written.getId())));
+        if (!stored.equals(written)) {
+            log.warn("Фильм с ID {} после записи расходится с БД: ответ {}, в БД {}", written.getId(), written, stored);
+        }
+        return stored;
+    }
+
+    // MPA и жанры заменяются записями из снимков справочников: жанры без повторов, по возрастанию ID
+    private void resolveReferenceData(Film film) {
+        MpaRating mpa = mpaDbStorage.getMpaById(film.getMpa().getId())
+                .orElseThrow(() -> new NotFoundException(
+                        String.format("MPA рейтинг с ID %d не найден", film.getMpa().getId())));
+
+        Set<Genre> genres = new LinkedHashSet<>();
+        if (film.getGenres() != null) {
+            genres = film.getGenres().stream()
+                    .map(genre -> genreDbStorage.getGenreById(genre.getId())
+                            .orElseThrow(() -> new NotFoundException(
+                                    String.format("Жанр с ID %d не найден", genre.getId()))))
+                    .sorted(Comparator.comparing(Genre::getId))
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+
+        film.setMpa(mpa);
+        film.setGenres(genres);
     }
 
     @Override
     public Optional<Film> findById(Long id) {
-        String sql = "SELECT * FROM film WHERE id = ?";
+        String sql = FILM_SELECT + "WHERE f.id = ?";
         try {
             Film film = jdbcTemplate.queryForObject(sql, filmRowMapper, id);
             if (film != null) {
-                film.setGenres(new LinkedHashSet<>(genreDbStorage.getGenresByFilmId(id)));
-                film.setLikes(new HashSet<>(getLikesByFilmId(id)));
+                hydrate(List.of(film));
             }
             return Optional.ofNullable(film);
         } catch (EmptyResultDataAccessException e) {
@@ -172,6 +287,43 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
+    @Override
+    public Optional<Long> getVersion(Long id) {
+        return jdbcTemplate.queryForList("SELECT version FROM film WHERE id = ?", Long.class, id)
+                .stream()
+                .findFirst();
+    }
+
+    // MAX по индексу idx_film_version и COUNT(*) H2 берет без прохода по таблице
+    @Override
+    public String getCatalogVersion() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(version), 0), COUNT(*) FROM film",
+                (rs, rowNum) -> rs.getLong(1) + "-" + rs.getLong(2));
+    }
+
+    // Фильмы по списку ID одним запросом, в порядке переданных ID
+    @Override
+    public List<Film> findAllByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = FILM_SELECT + "WHERE f.id IN (:ids)";
+        Map<Long, Film> filmsById = new HashMap<>();
+        namedJdbcTemplate.query(sql, Map.of("ids", ids), filmRowMapper)
+                .forEach(film -> filmsById.put(film.getId(), film));
+
+        List<Film> films = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        hydrate(films);
+        return films;
+    }
+
     @Override
     public void delete(Long id) {
         String sql = "DELETE FROM film WHERE id = ?";
@@ -208,48 +360,186 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
-    private List<Long> getLikesByFilmId(Long filmId) {
-        String sql = "SELECT user_id FROM likes WHERE film_id = ?";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("user_id"), filmId);
+    // Догружает жанры и лайки для страницы фильмов двумя запросами вместо 2N
+    private void hydrate(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+
+        List<Long> filmIds = films.stream().map(Film::getId).toList();
+        attachGenresAndLikes(films, genreDbStorage.getGenresByFilmIds(filmIds), getLikesByFilmIds(filmIds));
     }
 
-    public void addLike(Long filmId, Long userId) {
-        String checkSql = "SELECT COUNT(*) FROM likes WHERE film_id = ? AND user_id = ?";
-        Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, filmId, userId);
+    private void attachGenresAndLikes(List<Film> films,
+                                      Map<Long, Set<Genre>> genresByFilm,
+                                      Map<Long, Set<Long>> likesByFilm) {
+        for (Film film : films) {
+            film.setGenres(genresByFilm.getOrDefault(film.getId(), new LinkedHashSet<>()));
+            film.setLikes(likesByFilm.getOrDefault(film.getId(), new HashSet<>()));
+        }
+    }
 
-        if (count == null || count == 0) {
-            String sql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
+    private Map<Long, Set<Long>> getLikesByFilmIds(Collection<Long> filmIds) {
+        Map<Long, Set<Long>> likesByFilm = new HashMap<>();
+        String sql = "SELECT film_id, user_id FROM likes WHERE film_id IN (:filmIds)";
+        namedJdbcTemplate.query(sql, Map.of("filmIds", filmIds), rs -> {
+            likesByFilm.computeIfAbsent(rs.getLong("film_id"), id -> new HashSet<>()).add(rs.getLong("user_id"));
+        });
+        return likesByFilm;
+    }
+
+    private Map<Long, Set<Long>> getAllLikes() {
+        Map<Long, Set<Long>> likesByFilm = new HashMap<>();
+        String sql = "SELECT film_id, user_id FROM likes";
+        jdbcTemplate.query(sql, rs -> {
+            likesByFilm.computeIfAbsent(rs.getLong("film_id"), id -> new HashSet<>()).add(rs.getLong("user_id"));
+        });
+        return likesByFilm;
+    }
+
+    // Одна вставка без предварительных проверок: дубликат и несуществующие фильм
+    // или пользователь распознаются по нарушенному ограничению
+    @Override
+    @Transactional
+    public void addLike(Long filmId, Long userId) {
+        String sql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
+        try {
             jdbcTemplate.update(sql, filmId, userId);
-            log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
-        } else {
+        } catch (DuplicateKeyException e) {
             throw new ValidationException(String.format(
                     "Лайк от пользователя %d фильму %d уже существует", userId, filmId));
+        } catch (DataIntegrityViolationException e) {
+            throw likeReferenceNotFound(e, filmId, userId);
         }
+
+        jdbcTemplate.update("UPDATE film SET like_count = like_count + 1, " +
+                "version = NEXT VALUE FOR film_version_seq WHERE id = ?", filmId);
+        log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
     }
 
-    public void removeLike(Long filmId, Long userId) {
+    // Удаление без предварительных проверок; существование фильма и пользователя
+    // проверяется только если удалять было нечего
+    @Override
+    @Transactional
+    public boolean removeLike(Long filmId, Long userId) {
         String sql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
         int deletedRows = jdbcTemplate.update(sql, filmId, userId);
         if (deletedRows == 0) {
+            if (!userExists(userId)) {
+                throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+            }
+            if (!existsById(filmId)) {
+                throw new NotFoundException(String.format("Фильм с ID %d не найден", filmId));
+            }
             log.warn("Попытка удалить несуществующий лайк: пользователь {}, фильм {}", userId, filmId);
-        } else {
-            log.info("Пользователь {} удалил лайк с фильма {}", userId, filmId);
+            return false;
+        }
+
+        jdbcTemplate.update("UPDATE film SET like_count = like_count - 1, " +
+                "version = NEXT VALUE FOR film_version_seq WHERE id = ?", filmId);
+        log.info("Пользователь {} удалил лайк с фильма {}", userId, filmId);
+        return true;
+    }
+
+    private NotFoundException likeReferenceNotFound(DataIntegrityViolationException e, Long filmId, Long userId) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage()).toUpperCase();
+        if (message.contains("FK_LIKES_USER")) {
+            return new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+        }
+        if (message.contains("FK_LIKES_FILM")) {
+            return new NotFoundException(String.format("Фильм с ID %d не найден", filmId));
+        }
+        throw e;
+    }
+
+    private boolean userExists(Long userId) {
+        String sql = "SELECT COUNT(*) FROM users WHERE id = ?";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, userId);
+        return count != null && count > 0;
+    }
+
+    // Пакетное применение лайков и отмен одной транзакцией. Любое нарушение ограничений
+    // откатывает весь пакет; возвращаются только отмены, которые действительно удалили строку
+    @Transactional
+    public List<Like> saveLikeChanges(List<Like> added, List<Like> removed) {
+        Map<Long, Integer> deltas = new HashMap<>();
+
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)",
+                    added.stream().map(like -> new Object[]{like.getFilmId(), like.getUserId()}).toList());
+            added.forEach(like -> deltas.merge(like.getFilmId(), 1, Integer::sum));
+        }
+
+        List<Like> actuallyRemoved = new ArrayList<>();
+        if (!removed.isEmpty()) {
+            int[] deletedRows = jdbcTemplate.batchUpdate("DELETE FROM likes WHERE film_id = ? AND user_id = ?",
+                    removed.stream().map(like -> new Object[]{like.getFilmId(), like.getUserId()}).toList());
+            for (int i = 0; i < deletedRows.length; i++) {
+                if (deletedRows[i] > 0) {
+                    Like like = removed.get(i);
+                    actuallyRemoved.add(like);
+                    deltas.merge(like.getFilmId(), -1, Integer::sum);
+                }
+            }
+        }
+
+        // Версия меняется у каждого затронутого фильма, даже если лайк и отмена разных
+        // пользователей взаимно погасили счетчик: состав лайков все равно изменился
+        List<Object[]> counterArgs = new ArrayList<>();
+        deltas.forEach((filmId, delta) -> counterArgs.add(new Object[]{delta, filmId}));
+        if (!counterArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE film SET like_count = like_count + ?, " +
+                    "version = NEXT VALUE FOR film_version_seq WHERE id = ?", counterArgs);
         }
+
+        log.info("Пакетно сохранено лайков: {}, удалено: {}", added.size(), actuallyRemoved.size());
+        return actuallyRemoved;
     }
 
+    // Все лайки парами (пользователь, фильм) по возрастанию пользователя, затем фильма.
+    // Порядок совпадает с индексом idx_likes_user_film: выборка без сортировки
+    @Override
+    public void forEachLike(BiConsumer<Long, Long> consumer) {
+        jdbcTemplate.query("SELECT user_id, film_id FROM likes ORDER BY user_id, film_id", rs -> {
+            consumer.accept(rs.getLong("user_id"), rs.getLong("film_id"));
+        });
+    }
+
+    // Счетчики лайков всех фильмов, включая фильмы без лайков
+    @Override
+    public Map<Long, Integer> getLikeCounts() {
+        Map<Long, Integer> likeCounts = new HashMap<>();
+        jdbcTemplate.query("SELECT id, like_count FROM film", rs -> {
+            likeCounts.put(rs.getLong("id"), rs.getInt("like_count"));
+        });
+        return likeCounts;
+    }
+
+    // Год выпуска каждого фильма
+    @Override
+    public Map<Long, Integer> getReleaseYears() {
+        Map<Long, Integer> years = new HashMap<>();
+        jdbcTemplate.query("SELECT id, EXTRACT(YEAR FROM release_date) AS release_year FROM film", rs -> {
+            years.put(rs.getLong("id"), rs.getInt("release_year"));
+        });
+        return years;
+    }
+
+    // Порядок первичного ключа film_genres, без сортировки
+    @Override
+    public void forEachFilmGenre(BiConsumer<Long, Long> consumer) {
+        jdbcTemplate.query("SELECT film_id, genre_id FROM film_genres ORDER BY film_id, genre_id", rs -> {
+            consumer.accept(rs.getLong("film_id"), rs.getLong("genre_id"));
+        });
+    }
+
+    // Топ по поддерживаемому счетчику like_count: один проход по индексу idx_film_like_count
+    @Override
     public List<Film> getPopularFilms(int count) {
-        String sql = "SELECT f.*, COUNT(l.user_id) as likes_count " +
-                "FROM film f " +
-                "LEFT JOIN likes l ON f.id = l.film_id " +
-                "GROUP BY f.id " +
-                "ORDER BY likes_count DESC " +
-                "LIMIT ?";
-
-        return jdbcTemplate.query(sql, (rs, rowNum) -> {
-            Film film = filmRowMapper.mapRow(rs, rowNum);
-            film.setGenres(new LinkedHashSet<>(genreDbStorage.getGenresByFilmId(film.getId())));
-            film.setLikes(new HashSet<>(getLikesByFilmId(film.getId())));
-            return film;
-        }, count);
+        String sql = FILM_SELECT + "ORDER BY f.like_count DESC, f.id LIMIT ?";
+
+        List<Film> films = jdbcTemplate.query(sql, filmRowMapper, count);
+        hydrate(films);
+        return films;
     }
 }
\ No newline at end of file
@@ -2,13 +2,27 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Collection<Film> findAll();
 
+    // Страница по ключу: записи с ID больше afterId, по возрастанию ID
+    List<Film> findPage(long afterId, int limit);
+
+    // Последовательная выдача всех записей без загрузки таблицы в память целиком
+    void forEach(Consumer<Film> consumer);
+
     Film create(Film film);
 
+    // Пакетная вставка без повторного чтения: ID проставляются в переданные фильмы и возвращаются
+    // в том же порядке. Ссылки на MPA и жанры должны быть проверены вызывающим
+    List<Long> createAll(List<Film> films);
+
     Film update(Film film);
 
     Optional<Film> findById(Long id);
@@ -16,4 +30,34 @@ public interface FilmStorage {
     void delete(Long id);
 
     boolean existsById(Long id);
+
+    // Версия фильма: меняется при каждой записи, затрагивающей его представление (поля, жанры, лайки)
+    Optional<Long> getVersion(Long id);
+
+    // Версия каталога: меняется при любом изменении фильмов и лайков, включая удаление
+    String getCatalogVersion();
+
+    // Фильмы по списку ID в порядке переданных ID; отсутствующие пропускаются
+    List<Film> findAllByIds(List<Long> ids);
+
+    // Дубликат лайка — ValidationException, несуществующие фильм или пользователь — NotFoundException
+    void addLike(Long filmId, Long userId);
+
+    // true, если лайк был и удален
+    boolean removeLike(Long filmId, Long userId);
+
+    // Все лайки в порядке (user_id, film_id)
+    void forEachLike(BiConsumer<Long, Long> consumer);
+
+    // Счетчики лайков всех фильмов, включая фильмы без лайков
+    Map<Long, Integer> getLikeCounts();
+
+    // Год выпуска каждого фильма
+    Map<Long, Integer> getReleaseYears();
+
+    // Все жанры фильмов в порядке (film_id, genre_id)
+    void forEachFilmGenre(BiConsumer<Long, Long> consumer);
+
+    // Фильмы по убыванию числа лайков, при равенстве — по возрастанию ID
+    List<Film> getPopularFilms(int count);
 }
\ No newline at end of file
@@ -1,46 +1,136 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.LongHashSet;
+import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+// Потокобезопасное хранилище в памяти с той же семантикой, что и FilmDbStorage.
+// Наружу отдаются только копии, лайки хранятся примитивными множествами
+// и изменяются под блокировкой своего фильма
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory")
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Long, Film> films = new HashMap<>();
+    private static final int LOCK_STRIPES = 64;
+    private static final Comparator<long[]> BY_LIKES_DESC = Comparator.<long[]>comparingLong(entry -> entry[1])
+            .reversed()
+            .thenComparingLong(entry -> entry[0]);
+
+    private final ConcurrentNavigableMap<Long, Film> films = new ConcurrentSkipListMap<>();
+    private final Map<Long, LongHashSet> likes = new ConcurrentHashMap<>();
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
     private final AtomicLong nextId = new AtomicLong(1);
+    // Версии фильмов из общего счетчика, как film_version_seq в БД
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicLong versionSequence = new AtomicLong();
+
+    private final MpaDbStorage mpaDbStorage;
+    private final GenreDbStorage genreDbStorage;
+    private final UserStorage userStorage;
+
+    @Autowired
+    public InMemoryFilmStorage(MpaDbStorage mpaDbStorage,
+                               GenreDbStorage genreDbStorage,
+                               UserStorage userStorage) {
+        this.mpaDbStorage = mpaDbStorage;
+        this.genreDbStorage = genreDbStorage;
+        this.userStorage = userStorage;
+    }
 
     @Override
     public Collection<Film> findAll() {
         log.info("Текущее количество фильмов: {}", films.size());
-        return films.values();
+        List<Film> result = new ArrayList<>(films.size());
+        films.values().forEach(film -> result.add(copyWithLikes(film)));
+        return result;
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return films.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(this::copyWithLikes)
+                .toList();
+    }
+
+    @Override
+    public void forEach(Consumer<Film> consumer) {
+        films.values().forEach(film -> consumer.accept(copyWithLikes(film)));
     }
 
     @Override
     public Film create(Film film) {
-        film.setId(nextId.getAndIncrement());
-        films.put(film.getId(), film);
-        log.info("Фильм создан с ID: {}", film.getId());
-        return film;
+        Film stored = normalize(film);
+        stored.setId(nextId.getAndIncrement());
+        films.put(stored.getId(), stored);
+        touch(stored.getId());
+        log.info("Фильм создан с ID: {}", stored.getId());
+        return copyWithLikes(stored);
+    }
+
+    @Override
+    public List<Long> createAll(List<Film> newFilms) {
+        List<Long> ids = new ArrayList<>(newFilms.size());
+        for (Film film : newFilms) {
+            Film stored = normalize(film);
+            stored.setId(nextId.getAndIncrement());
+            films.put(stored.getId(), stored);
+            touch(stored.getId());
+            film.setId(stored.getId());
+            ids.add(stored.getId());
+        }
+        log.info("Пакетно создано фильмов: {}", ids.size());
+        return ids;
     }
 
     @Override
     public Film update(Film film) {
-        films.put(film.getId(), film);
+        Film normalized = normalize(film);
+        Film stored = films.computeIfPresent(film.getId(), (id, existing) -> normalized);
+        if (stored == null) {
+            throw new NotFoundException(String.format("Фильм с ID %d не найден для обновления", film.getId()));
+        }
+        touch(film.getId());
+
         log.info("Фильм с ID {} обновлен", film.getId());
-        return film;
+        return copyWithLikes(stored);
     }
 
     @Override
     public Optional<Film> findById(Long id) {
-        return Optional.ofNullable(films.get(id));
+        return Optional.ofNullable(films.get(id)).map(this::copyWithLikes);
     }
 
+    // Лайки удаляются под блокировкой фильма после него самого,
+    // поэтому addLike не сможет добавить лайк удаленному фильму
     @Override
     public void delete(Long id) {
-        films.remove(id);
+        if (films.remove(id) == null) {
+            throw new NotFoundException(String.format("Фильм с ID %d не найден для удаления", id));
+        }
+        locks.write(id, () -> likes.remove(id));
+        versions.remove(id);
+        versionSequence.incrementAndGet();
         log.info("Фильм с ID {} удален", id);
     }
 
@@ -48,4 +138,195 @@ public class InMemoryFilmStorage implements FilmStorage {
     public boolean existsById(Long id) {
         return films.containsKey(id);
     }
-}
\ No newline at end of file
+
+    @Override
+    public Optional<Long> getVersion(Long id) {
+        return Optional.ofNullable(versions.get(id));
+    }
+
+    @Override
+    public String getCatalogVersion() {
+        return String.valueOf(versionSequence.get());
+    }
+
+    @Override
+    public List<Film> findAllByIds(List<Long> ids) {
+        List<Film> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Film film = films.get(id);
+            if (film != null) {
+                result.add(copyWithLikes(film));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void addLike(Long filmId, Long userId) {
+        locks.write(filmId, () -> {
+            if (!films.containsKey(filmId)) {
+                throw new NotFoundException(String.format("Фильм с ID %d не найден", filmId));
+            }
+            if (!userStorage.existsById(userId)) {
+                throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+            }
+            if (!likes.computeIfAbsent(filmId, id -> new LongHashSet()).add(userId)) {
+                throw new ValidationException(String.format(
+                        "Лайк от пользователя %d фильму %d уже существует", userId, filmId));
+            }
+            touch(filmId);
+            return null;
+        });
+        log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
+    }
+
+    @Override
+    public boolean removeLike(Long filmId, Long userId) {
+        boolean removed = locks.write(filmId, () -> {
+            LongHashSet filmLikes = likes.get(filmId);
+            if (filmLikes == null || !filmLikes.remove(userId)) {
+                return false;
+            }
+            touch(filmId);
+            return true;
+        });
+
+        if (!removed) {
+            if (!userStorage.existsById(userId)) {
+                throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+            }
+            if (!existsById(filmId)) {
+                throw new NotFoundException(String.format("Фильм с ID %d не найден", filmId));
+            }
+            log.warn("Попытка удалить несуществующий лайк: пользователь {}, фильм {}", userId, filmId);
+            return false;
+        }
+
+        log.info("Пользователь {} удалил лайк с фильма {}", userId, filmId);
+        return true;
+    }
+
+    @Override
+    public void forEachLike(BiConsumer<Long, Long> consumer) {
+        List<long[]> pairs = new ArrayList<>();
+        for (Long filmId : films.keySet()) {
+            long[] users = locks.read(filmId, () -> {
+                LongHashSet filmLikes = likes.get(filmId);
+                return filmLikes == null ? new long[0] : filmLikes.toSortedArray();
+            });
+            for (long userId : users) {
+                pairs.add(new long[]{userId, filmId});
+            }
+        }
+        pairs.sort(Comparator.<long[]>comparingLong(pair -> pair[0]).thenComparingLong(pair -> pair[1]));
+        pairs.forEach(pair -> consumer.accept(pair[0], pair[1]));
+    }
+
+    @Override
+    public Map<Long, Integer> getLikeCounts() {
+        Map<Long, Integer> likeCounts = new HashMap<>();
+        for (Long filmId : films.keySet()) {
+            likeCounts.put(filmId, likeCount(filmId));
+        }
+        return likeCounts;
+    }
+
+    @Override
+    public Map<Long, Integer> getReleaseYears() {
+        Map<Long, Integer> years = new HashMap<>();
+        for (Film film : films.values()) {
+            years.put(film.getId(), film.getReleaseDate().getYear());
+        }
+        return years;
+    }
+
+    @Override
+    public void forEachFilmGenre(BiConsumer<Long, Long> consumer) {
+        for (Film film : films.values()) {
+            film.getGenres().stream()
+                    .mapToLong(Genre::getId)
+                    .sorted()
+                    .forEach(genreId -> consumer.accept(film.getId(), genreId));
+        }
+    }
+
+    // Куча из count лучших фильмов: O(n log count) без сортировки всего каталога
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        PriorityQueue<long[]> top = new PriorityQueue<>(count + 1, BY_LIKES_DESC.reversed());
+        for (Long filmId : films.keySet()) {
+            top.add(new long[]{filmId, likeCount(filmId)});
+            if (top.size() > count) {
+                top.poll();
+            }
+        }
+
+        List<long[]> ranked = new ArrayList<>(top);
+        ranked.sort(BY_LIKES_DESC);
+        return findAllByIds(ranked.stream().map(entry -> entry[0]).toList());
+    }
+
+    private void touch(long filmId) {
+        versions.put(filmId, versionSequence.incrementAndGet());
+    }
+
+    private int likeCount(long filmId) {
+        return locks.read(filmId, () -> {
+            LongHashSet filmLikes = likes.get(filmId);
+            return filmLikes == null ? 0 : filmLikes.size();
+        });
+    }
+
+    // Собственная копия фильма с MPA и жанрами из справочников, жанры по возрастанию ID — как в БД
+    private Film normalize(Film film) {
+        MpaRating mpa = mpaDbStorage.getMpaById(film.getMpa().getId())
+                .orElseThrow(() -> new NotFoundException(
+                        String.format("MPA рейтинг с ID %d не найден", film.getMpa().getId())));
+
+        Set<Genre> genres = new LinkedHashSet<>();
+        if (film.getGenres() != null) {
+            genres = film.getGenres().stream()
+                    .map(genre -> genreDbStorage.getGenreById(genre.getId())
+                            .orElseThrow(() -> new NotFoundException(
+                                    String.format("Жанр с ID %d не найден", genre.getId()))))
+                    .sorted(Comparator.comparing(Genre::getId))
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        copy.setMpa(mpa);
+        copy.setGenres(genres);
+        return copy;
+    }
+
+    private Film copyWithLikes(Film film) {
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+
+        MpaRating mpa = film.getMpa();
+        copy.setMpa(new MpaRating(mpa.getId(), mpa.getName(), mpa.getDescription()));
+        copy.setGenres(film.getGenres().stream()
+                .map(genre -> new Genre(genre.getId(), genre.getName()))
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+
+        long[] userIds = locks.read(film.getId(), () -> {
+            LongHashSet filmLikes = likes.get(film.getId());
+            return filmLikes == null ? new long[0] : filmLikes.toSortedArray();
+        });
+        Set<Long> filmLikes = new LinkedHashSet<>();
+        for (long userId : userIds) {
+            filmLikes.add(userId);
+        }
+        copy.setLikes(filmLikes);
+        return copy;
+    }
+}
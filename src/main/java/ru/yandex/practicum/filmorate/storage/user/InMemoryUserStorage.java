@@ -1,21 +1,60 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.LongHashSet;
+import ru.yandex.practicum.filmorate.storage.StripedLocks;
+
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+// Потокобезопасное хранилище в памяти с той же семантикой, что и UserDbStorage.
+// Наружу отдаются только копии, списки друзей хранятся примитивными множествами
+// и изменяются под блокировкой своего пользователя
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory")
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
-    private final Map<Long, User> users = new HashMap<>();
+    private static final int LOCK_STRIPES = 64;
+    private static final long[] NO_FRIENDS = new long[0];
+
+    private final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+    private final Map<Long, LongHashSet> friends = new ConcurrentHashMap<>();
+    // Аналог UNIQUE(email) в БД: адрес занимается атомарно до записи пользователя
+    private final Map<String, Long> emails = new ConcurrentHashMap<>();
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
     private final AtomicLong nextId = new AtomicLong(1);
 
     @Override
     public Collection<User> findAll() {
         log.info("Текущее количество пользователей: {}", users.size());
-        return users.values();
+        List<User> result = new ArrayList<>(users.size());
+        users.values().forEach(user -> result.add(copyWithFriends(user)));
+        return result;
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(this::copyWithFriends)
+                .toList();
+    }
+
+    @Override
+    public void forEach(Consumer<User> consumer) {
+        users.values().forEach(user -> consumer.accept(copyWithFriends(user)));
     }
 
     @Override
@@ -24,43 +63,95 @@ public class InMemoryUserStorage implements UserStorage {
             user.setName(user.getLogin());
         }
 
-        user.setId(nextId.getAndIncrement());
-        users.put(user.getId(), user);
+        long id = nextId.getAndIncrement();
+        locks.write(id, () -> {
+            reserveEmail(user.getEmail(), id);
+            user.setId(id);
+            return users.put(id, copy(user));
+        });
+        user.setFriends(new HashSet<>());
         log.info("Пользователь создан с ID: {}", user.getId());
         return user;
     }
 
     @Override
-    public User update(User user) {
-        User existingUser = users.get(user.getId());
-
-        if (user.getEmail() != null) {
-            existingUser.setEmail(user.getEmail());
-        }
-        if (user.getLogin() != null) {
-            existingUser.setLogin(user.getLogin());
+    public List<Long> createAll(List<User> newUsers) {
+        // Как и транзакция в БД, пакет с занятым адресом не создает ни одного пользователя
+        List<Long> ids = new ArrayList<>(newUsers.size());
+        try {
+            for (User user : newUsers) {
+                long id = nextId.getAndIncrement();
+                reserveEmail(user.getEmail(), id);
+                ids.add(id);
+            }
+        } catch (DuplicateKeyException e) {
+            for (int i = 0; i < ids.size(); i++) {
+                emails.remove(newUsers.get(i).getEmail(), ids.get(i));
+            }
+            throw e;
         }
-        if (user.getName() != null && !user.getName().isBlank()) {
-            existingUser.setName(user.getName());
-        } else if (user.getLogin() != null) {
-            existingUser.setName(user.getLogin());
+
+        for (int i = 0; i < newUsers.size(); i++) {
+            User user = newUsers.get(i);
+            if (user.getName() == null || user.getName().isBlank()) {
+                user.setName(user.getLogin());
+            }
+            user.setId(ids.get(i));
+            users.put(user.getId(), copy(user));
+            user.setFriends(new HashSet<>());
         }
-        if (user.getBirthday() != null) {
-            existingUser.setBirthday(user.getBirthday());
+        log.info("Пакетно создано пользователей: {}", ids.size());
+        return ids;
+    }
+
+    @Override
+    public User update(User user) {
+        // Смена адреса идет под блокировкой пользователя: новый занимается до записи, старый освобождается после
+        User stored = locks.write(user.getId(), () -> {
+            User existing = users.get(user.getId());
+            if (existing == null) {
+                return null;
+            }
+            reserveEmail(user.getEmail(), user.getId());
+            users.put(user.getId(), copy(user));
+            if (!existing.getEmail().equals(user.getEmail())) {
+                emails.remove(existing.getEmail(), user.getId());
+            }
+            return users.get(user.getId());
+        });
+        if (stored == null) {
+            throw new NotFoundException(String.format("Пользователь с ID %d не найден", user.getId()));
         }
 
         log.info("Пользователь с ID {} обновлен", user.getId());
-        return existingUser;
+        return copyWithFriends(stored);
     }
 
     @Override
     public Optional<User> findById(Long id) {
-        return Optional.ofNullable(users.get(id));
+        return Optional.ofNullable(users.get(id)).map(this::copyWithFriends);
     }
 
+    // Связи удаляются после самого пользователя: addFriend проверяет существование
+    // под той же блокировкой, поэтому новая связь с удаленным пользователем не появится
     @Override
     public void delete(Long id) {
-        users.remove(id);
+        User removed = locks.write(id, () -> users.remove(id));
+        if (removed == null) {
+            return;
+        }
+        emails.remove(removed.getEmail(), id);
+
+        locks.write(id, () -> friends.remove(id));
+        for (Long userId : friends.keySet()) {
+            locks.write(userId, () -> {
+                LongHashSet userFriends = friends.get(userId);
+                if (userFriends != null) {
+                    userFriends.remove(id);
+                }
+                return null;
+            });
+        }
         log.info("Пользователь с ID {} удален", id);
     }
 
@@ -68,4 +159,160 @@ public class InMemoryUserStorage implements UserStorage {
     public boolean existsById(Long id) {
         return users.containsKey(id);
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<User> findAllByIds(Collection<Long> ids) {
+        List<User> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                result.add(copy(user));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachFriendship(BiConsumer<Long, Long> consumer) {
+        for (Long userId : users.keySet()) {
+            for (long friendId : friendsOf(userId)) {
+                consumer.accept(userId, friendId);
+            }
+        }
+    }
+
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        if (userId.equals(friendId)) {
+            throw new ValidationException("Нельзя добавить самого себя в друзья");
+        }
+
+        boolean added = locks.write(userId, () -> {
+            requireUsersExist(userId, friendId);
+            return friends.computeIfAbsent(userId, id -> new LongHashSet()).add(friendId);
+        });
+
+        if (added) {
+            log.info("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
+        } else {
+            log.debug("Пользователь {} уже в друзьях у пользователя {}", friendId, userId);
+        }
+    }
+
+    @Override
+    public void addFriendships(List<Friendship> friendships) {
+        for (Friendship friendship : friendships) {
+            Long userId = friendship.getUserId();
+            Long friendId = friendship.getFriendId();
+            if (userId.equals(friendId)) {
+                throw new ValidationException("Нельзя добавить самого себя в друзья");
+            }
+            locks.write(userId, () -> {
+                requireUsersExist(userId, friendId);
+                return friends.computeIfAbsent(userId, id -> new LongHashSet()).add(friendId);
+            });
+        }
+        log.info("Пакетно добавлено связей дружбы: {}", friendships.size());
+    }
+
+    // Все связи хранятся подтвержденными, подтверждать нечего
+    @Override
+    public void confirmFriend(Long userId, Long friendId) {
+        boolean exists = locks.read(friendId, () -> {
+            LongHashSet userFriends = friends.get(friendId);
+            return userFriends != null && userFriends.contains(userId);
+        });
+        if (!exists) {
+            requireUsersExist(userId, friendId);
+        }
+        log.info("Заявка от пользователя {} к пользователю {} обновлена", friendId, userId);
+    }
+
+    @Override
+    public void removeFriend(Long userId, Long friendId) {
+        boolean removed = locks.write(userId, () -> {
+            LongHashSet userFriends = friends.get(userId);
+            if (userFriends == null || !userFriends.remove(friendId)) {
+                return false;
+            }
+            if (userFriends.isEmpty()) {
+                friends.remove(userId);
+            }
+            return true;
+        });
+
+        if (!removed) {
+            requireUsersExist(userId, friendId);
+        }
+        log.info("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
+    }
+
+    @Override
+    public List<User> getFriends(Long userId) {
+        return findAllByIds(toList(friendsOf(userId)));
+    }
+
+    @Override
+    public List<User> getCommonFriends(Long userId, Long otherId) {
+        long[] first = friendsOf(userId);
+        long[] second = friendsOf(otherId);
+        List<Long> common = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common.add(first[i]);
+                i++;
+                j++;
+            }
+        }
+        return findAllByIds(common);
+    }
+
+    private long[] friendsOf(long userId) {
+        return locks.read(userId, () -> {
+            LongHashSet userFriends = friends.get(userId);
+            return userFriends == null ? NO_FRIENDS : userFriends.toSortedArray();
+        });
+    }
+
+    private void requireUsersExist(Long userId, Long friendId) {
+        if (!existsById(userId)) {
+            throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+        }
+        if (!existsById(friendId)) {
+            throw new NotFoundException(String.format("Пользователь с ID %d не найден", friendId));
+        }
+    }
+
+    private User copyWithFriends(User user) {
+        User copy = copy(user);
+        copy.setFriends(new HashSet<>(toList(friendsOf(user.getId()))));
+        return copy;
+    }
+
+    private void reserveEmail(String email, long userId) {
+        Long owner = emails.putIfAbsent(email, userId);
+        if (owner != null && owner != userId) {
+            throw new DuplicateKeyException(String.format("Адрес %s уже занят пользователем с ID %d", email, owner));
+        }
+    }
+
+    private static User copy(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setEmail(user.getEmail());
+        copy.setLogin(user.getLogin());
+        copy.setName(user.getName());
+        copy.setBirthday(user.getBirthday());
+        return copy;
+    }
+
+    private static List<Long> toList(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
+    }
+}
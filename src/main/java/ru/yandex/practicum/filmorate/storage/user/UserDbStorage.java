@@ -3,29 +3,51 @@ package ru.yandex.practicum.filmorate.storage.user;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Repository
 @Primary
 @Slf4j
 @Qualifier("userDbStorage")
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "db", matchIfMissing = true)
 public class UserDbStorage implements UserStorage {
 
+    private static final int STREAM_CHUNK_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final boolean verifyWrites;
 
     @Autowired
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate,
+                         @Value("${filmorate.storage.verify-writes:false}") boolean verifyWrites) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.verifyWrites = verifyWrites;
     }
 
     private final RowMapper<User> userRowMapper = (rs, rowNum) -> {
@@ -47,13 +69,44 @@ public class UserDbStorage implements UserStorage {
         String sql = "SELECT * FROM users ORDER BY id";
         List<User> users = jdbcTemplate.query(sql, userRowMapper);
 
-        users.forEach(user -> {
-            user.setFriends(new HashSet<>(getFriendsByUserId(user.getId())));
-        });
+        Map<Long, Set<Long>> friendsByUser = new HashMap<>();
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friendships WHERE status = 'CONFIRMED'",
+                collectFriends(friendsByUser));
+        attachFriends(users, friendsByUser);
+        return users;
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        List<User> users = jdbcTemplate.query(sql, userRowMapper, afterId, limit);
+        if (users.isEmpty()) {
+            return users;
+        }
 
+        Map<Long, Set<Long>> friendsByUser = new HashMap<>();
+        namedJdbcTemplate.query("SELECT user_id, friend_id FROM friendships " +
+                        "WHERE user_id IN (:userIds) AND status = 'CONFIRMED'",
+                Map.of("userIds", users.stream().map(User::getId).toList()),
+                collectFriends(friendsByUser));
+        attachFriends(users, friendsByUser);
         return users;
     }
 
+    // Пользователи читаются порциями по ключу, в памяти одновременно не больше одной порции
+    @Override
+    public void forEach(Consumer<User> consumer) {
+        long afterId = 0;
+        List<User> chunk;
+        do {
+            chunk = findPage(afterId, STREAM_CHUNK_SIZE);
+            chunk.forEach(consumer);
+            if (!chunk.isEmpty()) {
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == STREAM_CHUNK_SIZE);
+    }
+
     @Override
     public User create(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
@@ -80,19 +133,91 @@ public class UserDbStorage implements UserStorage {
         return user;
     }
 
+    @Override
+    @Transactional
+    public List<Long> createAll(List<User> users) {
+        if (users.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        for (User user : users) {
+            if (user.getName() == null || user.getName().isBlank()) {
+                user.setName(user.getLogin());
+            }
+        }
+
+        String sql = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(sql, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement stmt, int i) throws SQLException {
+                        User user = users.get(i);
+                        stmt.setString(1, user.getEmail());
+                        stmt.setString(2, user.getLogin());
+                        stmt.setString(3, user.getName());
+                        stmt.setDate(4, java.sql.Date.valueOf(user.getBirthday()));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return users.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != users.size()) {
+            throw new IllegalStateException(String.format(
+                    "Получено %d сгенерированных ID для %d пользователей", keys.size(), users.size()));
+        }
+
+        List<Long> ids = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            Long userId = ((Number) keys.get(i).values().iterator().next()).longValue();
+            users.get(i).setId(userId);
+            ids.add(userId);
+        }
+
+        log.info("Пакетно создано пользователей: {}", ids.size());
+        return ids;
+    }
+
     @Override
     public User update(User user) {
         String sql = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
 
-        jdbcTemplate.update(sql,
+        int updatedRows = jdbcTemplate.update(sql,
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
                 java.sql.Date.valueOf(user.getBirthday()),
                 user.getId());
 
+        if (updatedRows == 0) {
+            throw new NotFoundException(String.format("Пользователь с ID %d не найден для обновления", user.getId()));
+        }
+
+        // Друзья не входят в обновляемые поля, из БД читаются только они
+        user.setFriends(new HashSet<>(getFriendsByUserId(user.getId())));
+
         log.info("Пользователь с ID {} обновлен", user.getId());
-        return findById(user.getId()).orElseThrow();
+        return verifyWrite(user);
+    }
+
+    // В режиме проверки пользователь перечитывается из БД, расхождение с ответом пишется в лог
+    private User verifyWrite(User written) {
+        if (!verifyWrites) {
+            return written;
+        }
+
+        User stored = findById(written.getId()).orElseThrow(() ->
+                new NotFoundException(String.format("Пользователь с ID %d не найден после записи", written.getId())));
+        if (!stored.equals(written)) {
+            log.warn("Пользователь с ID {} после записи расходится с БД: ответ {}, в БД {}",
+                    written.getId(), written, stored);
+        }
+        return stored;
     }
 
     @Override
@@ -109,6 +234,27 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    // Пользователи по списку ID одним запросом, в порядке переданных ID
+    @Override
+    public List<User> findAllByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, User> usersById = new HashMap<>();
+        namedJdbcTemplate.query("SELECT * FROM users WHERE id IN (:ids)", Map.of("ids", ids), userRowMapper)
+                .forEach(user -> usersById.put(user.getId(), user));
+
+        List<User> users = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            User user = usersById.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
     @Override
     public void delete(Long id) {
         String sql = "DELETE FROM users WHERE id = ?";
@@ -123,37 +269,105 @@ public class UserDbStorage implements UserStorage {
         return count != null && count > 0;
     }
 
+    private RowCallbackHandler collectFriends(Map<Long, Set<Long>> friendsByUser) {
+        return rs -> friendsByUser.computeIfAbsent(rs.getLong("user_id"), id -> new HashSet<>())
+                .add(rs.getLong("friend_id"));
+    }
+
+    private void attachFriends(List<User> users, Map<Long, Set<Long>> friendsByUser) {
+        for (User user : users) {
+            user.setFriends(friendsByUser.getOrDefault(user.getId(), new HashSet<>()));
+        }
+    }
+
     private List<Long> getFriendsByUserId(Long userId) {
         String sql = "SELECT friend_id FROM friendships WHERE user_id = ? AND status = 'CONFIRMED'";
         return jdbcTemplate.query(sql, (rs, rowNum) -> rs.getLong("friend_id"), userId);
     }
 
-    public void addFriend(Long userId, Long friendId) {
-        String checkSql = "SELECT COUNT(*) FROM friendships WHERE user_id = ? AND friend_id = ?";
-        Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, userId, friendId);
+    // Все подтвержденные связи в порядке первичного ключа (user_id, friend_id)
+    @Override
+    public void forEachFriendship(BiConsumer<Long, Long> consumer) {
+        String sql = "SELECT user_id, friend_id FROM friendships " +
+                "WHERE status = 'CONFIRMED' ORDER BY user_id, friend_id";
+        jdbcTemplate.query(sql, rs -> {
+            consumer.accept(rs.getLong("user_id"), rs.getLong("friend_id"));
+        });
+    }
 
-        if (count == null || count == 0) {
-            // Создаем одностороннюю дружбу со статусом 'CONFIRMED' сразу
-            String sql = "INSERT INTO friendships (user_id, friend_id, status) VALUES (?, ?, 'CONFIRMED')";
+    // Одна вставка без предварительных проверок: повторное добавление игнорируется,
+    // несуществующий пользователь распознается по нарушенному внешнему ключу
+    @Override
+    public void addFriend(Long userId, Long friendId) {
+        String sql = "INSERT INTO friendships (user_id, friend_id, status) VALUES (?, ?, 'CONFIRMED')";
+        try {
             jdbcTemplate.update(sql, userId, friendId);
             log.info("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
+        } catch (DuplicateKeyException e) {
+            log.debug("Пользователь {} уже в друзьях у пользователя {}", friendId, userId);
+        } catch (DataIntegrityViolationException e) {
+            String message = String.valueOf(e.getMostSpecificCause().getMessage()).toUpperCase();
+            if (message.contains("CHK_NOT_SELF_FRIEND")) {
+                throw new ValidationException("Нельзя добавить самого себя в друзья");
+            }
+            if (message.contains("FK_FRIENDSHIPS_USER")) {
+                throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+            }
+            if (message.contains("FK_FRIENDSHIPS_FRIEND")) {
+                throw new NotFoundException(String.format("Пользователь с ID %d не найден", friendId));
+            }
+            throw e;
+        }
+    }
+
+    // MERGE по первичному ключу: повторная связь не нарушает ограничение и не откатывает пакет
+    @Override
+    @Transactional
+    public void addFriendships(List<Friendship> friendships) {
+        if (friendships.isEmpty()) {
+            return;
         }
+
+        String sql = "MERGE INTO friendships (user_id, friend_id, status) KEY (user_id, friend_id) " +
+                "VALUES (?, ?, 'CONFIRMED')";
+        jdbcTemplate.batchUpdate(sql, friendships.stream()
+                .map(friendship -> new Object[]{friendship.getUserId(), friendship.getFriendId()})
+                .toList());
+        log.info("Пакетно добавлено связей дружбы: {}", friendships.size());
     }
 
+    @Override
     public void confirmFriend(Long userId, Long friendId) {
         // В односторонней дружбе подтверждение не требуется
         // Просто обновляем статус существующей записи на 'CONFIRMED' если нужно
         String updateSql = "UPDATE friendships SET status = 'CONFIRMED' WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(updateSql, friendId, userId);
+        if (jdbcTemplate.update(updateSql, friendId, userId) == 0) {
+            requireUsersExist(userId, friendId);
+        }
         log.info("Заявка от пользователя {} к пользователю {} обновлена", friendId, userId);
     }
 
+    // Удаление без предварительных проверок; существование пользователей
+    // проверяется только если удалять было нечего
+    @Override
     public void removeFriend(Long userId, Long friendId) {
         String sql = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sql, userId, friendId);
+        if (jdbcTemplate.update(sql, userId, friendId) == 0) {
+            requireUsersExist(userId, friendId);
+        }
         log.info("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
     }
 
+    private void requireUsersExist(Long userId, Long friendId) {
+        if (!existsById(userId)) {
+            throw new NotFoundException(String.format("Пользователь с ID %d не найден", userId));
+        }
+        if (!existsById(friendId)) {
+            throw new NotFoundException(String.format("Пользователь с ID %d не найден", friendId));
+        }
+    }
+
+    @Override
     public List<User> getFriends(Long userId) {
         String sql = "SELECT u.* FROM users u " +
                 "JOIN friendships f ON u.id = f.friend_id " +
@@ -162,6 +376,7 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sql, userRowMapper, userId);
     }
 
+    @Override
     public List<User> getCommonFriends(Long userId, Long otherId) {
         String sql = "SELECT u.* FROM users u " +
                 "JOIN friendships f1 ON u.id = f1.friend_id " +
@@ -1,14 +1,28 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     Collection<User> findAll();
 
+    // Страница по ключу: записи с ID больше afterId, по возрастанию ID
+    List<User> findPage(long afterId, int limit);
+
+    // Последовательная выдача всех записей без загрузки таблицы в память целиком
+    void forEach(Consumer<User> consumer);
+
     User create(User user);
 
+    // Пакетная вставка без повторного чтения: ID проставляются в переданных пользователей
+    // и возвращаются в том же порядке
+    List<Long> createAll(List<User> users);
+
     User update(User user);
 
     Optional<User> findById(Long id);
@@ -16,4 +30,25 @@ public interface UserStorage {
     void delete(Long id);
 
     boolean existsById(Long id);
+
+    // Пользователи по списку ID в порядке переданных ID; отсутствующие пропускаются
+    List<User> findAllByIds(Collection<Long> ids);
+
+    // Все подтвержденные связи в порядке (user_id, friend_id)
+    void forEachFriendship(BiConsumer<Long, Long> consumer);
+
+    // Повторное добавление игнорируется, несуществующий пользователь — NotFoundException
+    void addFriend(Long userId, Long friendId);
+
+    // Пакетное добавление подтвержденных связей, уже существующие пропускаются.
+    // Пользователи должны существовать, связь с самим собой недопустима
+    void addFriendships(List<Friendship> friendships);
+
+    void confirmFriend(Long userId, Long friendId);
+
+    void removeFriend(Long userId, Long friendId);
+
+    List<User> getFriends(Long userId);
+
+    List<User> getCommonFriends(Long userId, Long otherId);
 }
\ No newline at end of file
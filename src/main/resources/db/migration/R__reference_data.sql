@@ -0,0 +1,17 @@
+-- Справочники MPA и жанров. Повторяемая миграция: выполняется заново только при изменении
+-- этого файла, MERGE по естественному ключу не создает дубликатов и не меняет ID
+
+MERGE INTO mpa_ratings (code, name, description) KEY (code) VALUES
+('G', 'G', 'Нет возрастных ограничений'),
+('PG', 'PG', 'Рекомендуется присутствие родителей'),
+('PG-13', 'PG-13', 'Детям до 13 лет просмотр нежелателен'),
+('R', 'R', 'Лицам до 17 лет обязательно присутствие взрослого'),
+('NC-17', 'NC-17', 'Лицам до 18 лет просмотр запрещён');
+
+MERGE INTO genres (name) KEY (name) VALUES
+('Комедия'),
+('Драма'),
+('Мультфильм'),
+('Триллер'),
+('Документальный'),
+('Боевик');
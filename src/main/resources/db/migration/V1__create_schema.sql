@@ -1,14 +1,7 @@
--- Удаление существующих таблиц (в обратном порядке из-за внешних ключей)
-DROP TABLE IF EXISTS film_genres;
-DROP TABLE IF EXISTS likes;
-DROP TABLE IF EXISTS friendships;
-DROP TABLE IF EXISTS film;
-DROP TABLE IF EXISTS users;
-DROP TABLE IF EXISTS genres;
-DROP TABLE IF EXISTS mpa_ratings;
+-- Исходная схема Filmorate
 
 -- Создание таблицы рейтингов MPA
-CREATE TABLE IF NOT EXISTS mpa_ratings (
+CREATE TABLE mpa_ratings (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
     code VARCHAR(10) NOT NULL UNIQUE,
     name VARCHAR(100) NOT NULL,
@@ -16,13 +9,13 @@ CREATE TABLE IF NOT EXISTS mpa_ratings (
 );
 
 -- Создание таблицы жанров
-CREATE TABLE IF NOT EXISTS genres (
+CREATE TABLE genres (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
     name VARCHAR(100) NOT NULL UNIQUE
 );
 
 -- Создание таблицы пользователей
-CREATE TABLE IF NOT EXISTS users (
+CREATE TABLE users (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
     email VARCHAR(255) NOT NULL UNIQUE,
     login VARCHAR(100) NOT NULL,
@@ -33,21 +26,26 @@ CREATE TABLE IF NOT EXISTS users (
 );
 
 -- Создание таблицы фильмов
-CREATE TABLE IF NOT EXISTS film (
+CREATE TABLE film (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
     description VARCHAR(200),
     release_date DATE NOT NULL,
     duration INTEGER NOT NULL,
     mpa_rating_id BIGINT NOT NULL,
+    like_count INTEGER NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     CONSTRAINT fk_film_mpa_rating FOREIGN KEY (mpa_rating_id) REFERENCES mpa_ratings(id),
     CONSTRAINT chk_release_date CHECK (release_date >= '1895-12-28'),
-    CONSTRAINT chk_duration_positive CHECK (duration > 0)
+    CONSTRAINT chk_duration_positive CHECK (duration > 0),
+    CONSTRAINT chk_like_count_non_negative CHECK (like_count >= 0)
 );
 
+-- Индекс для выборки популярных фильмов без агрегации по likes
+CREATE INDEX idx_film_like_count ON film (like_count DESC, id);
+
 -- Создание таблицы дружбы
-CREATE TABLE IF NOT EXISTS friendships (
+CREATE TABLE friendships (
     user_id BIGINT NOT NULL,
     friend_id BIGINT NOT NULL,
     status VARCHAR(20) DEFAULT 'CONFIRMED',
@@ -61,7 +59,7 @@ CREATE TABLE IF NOT EXISTS friendships (
 );
 
 -- Создание таблицы лайков
-CREATE TABLE IF NOT EXISTS likes (
+CREATE TABLE likes (
     film_id BIGINT NOT NULL,
     user_id BIGINT NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -71,10 +69,10 @@ CREATE TABLE IF NOT EXISTS likes (
 );
 
 -- Создание таблицы связи фильмов и жанров
-CREATE TABLE IF NOT EXISTS film_genres (
+CREATE TABLE film_genres (
     film_id BIGINT NOT NULL,
     genre_id BIGINT NOT NULL,
     PRIMARY KEY (film_id, genre_id),
     CONSTRAINT fk_film_genres_film FOREIGN KEY (film_id) REFERENCES film(id) ON DELETE CASCADE,
     CONSTRAINT fk_film_genres_genre FOREIGN KEY (genre_id) REFERENCES genres(id) ON DELETE CASCADE
-);
\ No newline at end of file
+);
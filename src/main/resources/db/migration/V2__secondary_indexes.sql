@@ -0,0 +1,13 @@
+-- Индексы для обратных направлений: первичные ключи покрывают только прямые выборки
+
+-- Все лайки пользователя
+CREATE INDEX idx_likes_user_film ON likes (user_id, film_id);
+
+-- Все, кто добавил пользователя в друзья
+CREATE INDEX idx_friendships_friend_user ON friendships (friend_id, user_id);
+
+-- Фильмы жанра
+CREATE INDEX idx_film_genres_genre_film ON film_genres (genre_id, film_id);
+
+-- Фильмы по дате выхода
+CREATE INDEX idx_film_release_date ON film (release_date);
@@ -0,0 +1,8 @@
+-- Версии фильмов для ETag. Каждая запись, меняющая представление фильма (поля, жанры, лайки),
+-- берет новое значение из общей последовательности, поэтому MAX(version) вместе с числом
+-- фильмов однозначно определяет состояние каталога
+CREATE SEQUENCE film_version_seq;
+
+ALTER TABLE film ADD COLUMN version BIGINT DEFAULT NEXT VALUE FOR film_version_seq NOT NULL;
+
+CREATE INDEX idx_film_version ON film (version);
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.jdbc.SqlScriptsTestExecutionListener;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+import ru.yandex.practicum.filmorate.service.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.service.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.service.FriendshipIndex;
+
+// Индексы в памяти — синглтоны общего контекста, а база пересоздается скриптами @Sql перед
+// каждым тестом. Слушатель выполняется после скриптов и перестраивает все индексы, чтобы
+// ни один тест не видел состояние, оставшееся от предыдущих классов
+public class IndexRebuildTestExecutionListener extends AbstractTestExecutionListener {
+
+    @Override
+    public int getOrder() {
+        return new SqlScriptsTestExecutionListener().getOrder() + 1;
+    }
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        ApplicationContext context = testContext.getApplicationContext();
+        // В срезах контекста (@JdbcTest) индексов нет
+        context.getBeanProvider(FilmPopularityIndex.class).ifAvailable(FilmPopularityIndex::rebuild);
+        context.getBeanProvider(FriendshipIndex.class).ifAvailable(FriendshipIndex::rebuild);
+        context.getBeanProvider(FilmSimilarityIndex.class).ifAvailable(FilmSimilarityIndex::rebuild);
+        context.getBeanProvider(FilmSearchIndex.class).ifAvailable(FilmSearchIndex::rebuild);
+        context.getBeanProvider(FilmFacetIndex.class).ifAvailable(FilmFacetIndex::rebuild);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
+class ConditionalGetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void filmShouldBeRevalidatedByVersion() throws Exception {
+        String etag = mockMvc.perform(get("/films/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("must-revalidate")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("\"film-1-");
+
+        // Совпавший ETag: только чтение версии по первичному ключу, без тела
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string("X-Db-Statements", "1"))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(put("/films/1/like/4")).andExpect(status().isOk());
+
+        String afterLike = mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likes.length()").value(4))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(afterLike).isNotEqualTo(etag);
+
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\": 1, \"name\": \"Новое название\", \"releaseDate\": \"2000-01-01\", " +
+                                "\"duration\": 100, \"mpa\": {\"id\": 1}}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/1").header(HttpHeaders.IF_NONE_MATCH, afterLike))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Новое название"));
+    }
+
+    @Test
+    void unknownFilmShouldStillBeNotFound() throws Exception {
+        mockMvc.perform(get("/films/999").header(HttpHeaders.IF_NONE_MATCH, "\"film-999-1\""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void popularShouldBeRevalidatedByCatalogVersion() throws Exception {
+        String etag = mockMvc.perform(get("/films/popular").param("count", "3"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/films/popular").param("count", "3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // Другой count — другая выдача и другой ETag
+        mockMvc.perform(get("/films/popular").param("count", "2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(put("/films/5/like/1")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/popular").param("count", "3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+    }
+
+    @Test
+    void referenceDataShouldBeServedFromMemory() throws Exception {
+        for (String path : new String[]{"/genres", "/mpa", "/genres/1", "/mpa/1"}) {
+            String etag = mockMvc.perform(get(path))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=3600, public"))
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+            mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("X-Db-Statements", "0"));
+        }
+    }
+}
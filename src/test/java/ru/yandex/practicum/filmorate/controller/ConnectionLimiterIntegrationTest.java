@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.jdbc.ConnectionLimitingDataSource;
+import ru.yandex.practicum.filmorate.service.FilmPopularityIndex;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.threads.virtual.enabled=true",
+        "filmorate.jdbc.limiter.permits=2",
+        "filmorate.jdbc.limiter.acquire-timeout-ms=1000"
+})
+@AutoConfigureMockMvc
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
+class ConnectionLimiterIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+
+    private ConnectionLimitingDataSource limiter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        popularityIndex.rebuild();
+        limiter = dataSource.unwrap(ConnectionLimitingDataSource.class);
+    }
+
+    @Test
+    void exhaustedLimiterShouldAnswerServiceUnavailable() throws Exception {
+        assertThat(limiter.getPermitCount()).isEqualTo(2);
+
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            assertThat(limiter.getInUse()).isEqualTo(2);
+
+            mockMvc.perform(get("/films/1"))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(jsonPath("$.error").value("База данных перегружена, повторите запрос позже"));
+        }
+
+        assertThat(limiter.getInUse()).isZero();
+        mockMvc.perform(get("/films/1")).andExpect(status().isOk());
+    }
+
+    @Test
+    void manyVirtualThreadsShouldShareFewConnections() throws Exception {
+        int requests = 200;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                String uri = i % 2 == 0 ? "/films/" + (i % 5 + 1) : "/films/popular?count=3";
+                statuses.add(executor.submit(() -> mockMvc.perform(get(uri)).andReturn().getResponse().getStatus()));
+            }
+            for (Future<Integer> status : statuses) {
+                assertThat(status.get()).isEqualTo(200);
+            }
+        }
+
+        assertThat(limiter.getPeakInUse()).isBetween(1, 2);
+        assertThat(limiter.getInUse()).isZero();
+    }
+}
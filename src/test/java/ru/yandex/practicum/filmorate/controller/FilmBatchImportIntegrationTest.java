@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "filmorate.import.chunk-size=2",
+        "filmorate.import.max-size=10"
+})
+@AutoConfigureMockMvc
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
+class FilmBatchImportIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Test
+    void jsonArrayShouldBeImportedInChunks() throws Exception {
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            films.add(film(i, 1L, 2L));
+        }
+
+        MvcResult result = mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(films)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andReturn();
+
+        Long[] ids = objectMapper.readValue(result.getResponse().getContentAsString(), Long[].class);
+        assertThat(ids).containsExactly(6L, 7L, 8L, 9L, 10L);
+
+        Film stored = filmStorage.findById(8L).orElseThrow();
+        assertThat(stored.getName()).isEqualTo("Импорт 3");
+        assertThat(stored.getMpa().getName()).isEqualTo("G");
+        assertThat(stored.getGenres()).extracting(Genre::getId).containsExactly(1L, 2L);
+        assertThat(filmStorage.findAll()).hasSize(10);
+
+        // Новые фильмы сразу попадают в индекс популярности
+        mockMvc.perform(get("/films/popular").param("count", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(10));
+    }
+
+    @Test
+    void ndjsonShouldBeImported() throws Exception {
+        String body = objectMapper.writeValueAsString(film(1)) + "\n"
+                + objectMapper.writeValueAsString(film(2, 6L)) + "\n";
+
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value(6))
+                .andExpect(jsonPath("$[1]").value(7));
+
+        assertThat(filmStorage.findById(7L).orElseThrow().getGenres())
+                .extracting(Genre::getName)
+                .containsExactly("Боевик");
+    }
+
+    @Test
+    void invalidFilmShouldRejectWholeBatch() throws Exception {
+        Film invalid = film(3);
+        invalid.setDuration(-1);
+
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(film(1), film(2), invalid))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Фильм #2: Продолжительность фильма должна быть положительным числом"));
+
+        assertThat(filmStorage.findAll()).hasSize(5);
+    }
+
+    @Test
+    void unknownGenreShouldRejectWholeBatch() throws Exception {
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(film(1), film(2, 99L)))))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Фильм #1: Жанр с ID 99 не найден"));
+
+        assertThat(filmStorage.findAll()).hasSize(5);
+    }
+
+    @Test
+    void malformedAndOversizedBatchesShouldFail() throws Exception {
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(objectMapper.writeValueAsString(film(1)) + "\n{\"name\": \"Фильм\", \"duration\": \"долго\"}\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Фильм #1: некорректный формат данных"));
+
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= 11; i++) {
+            films.add(film(i));
+        }
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(films)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("В одном пакете не больше 10 фильмов"));
+
+        assertThat(filmStorage.findAll()).hasSize(5);
+    }
+
+    @Test
+    void emptyBatchShouldReturnNoIds() throws Exception {
+        mockMvc.perform(post("/films/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    private static Film film(int index, Long... genreIds) {
+        Film film = new Film();
+        film.setName("Импорт " + index);
+        film.setDescription("Описание " + index);
+        film.setReleaseDate(LocalDate.of(2001, 1, index));
+        film.setDuration(90 + index);
+        MpaRating mpa = new MpaRating();
+        mpa.setId(1L);
+        film.setMpa(mpa);
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (Long genreId : genreIds) {
+            Genre genre = new Genre();
+            genre.setId(genreId);
+            genres.add(genre);
+        }
+        film.setGenres(genres);
+        return film;
+    }
+}
@@ -8,17 +8,23 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 
 import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
-@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/schema.sql", "/data.sql"})
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
 class FilmControllerIntegrationTest {
 
     @Autowired
@@ -74,6 +80,40 @@ class FilmControllerIntegrationTest {
                 .andExpect(jsonPath("$.length()").value(5));
     }
 
+    @Test
+    void shouldGetFilmsPageAfterId() throws Exception {
+        mockMvc.perform(get("/films?after=2&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(4))
+                .andExpect(jsonPath("$[0].genres.length()").value(2));
+    }
+
+    @Test
+    void shouldRejectTooLargePageLimit() throws Exception {
+        mockMvc.perform(get("/films?limit=100000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldStreamFilmsAsNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/films").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = body.trim().split("\n");
+        assertThat(lines).hasSize(5);
+        assertThat(objectMapper.readValue(lines[0], Film.class).getId()).isEqualTo(1L);
+    }
+
     @Test
     void shouldGetFilmById() throws Exception {
         mockMvc.perform(get("/films/1"))
@@ -116,6 +156,20 @@ class FilmControllerIntegrationTest {
                         .value("Лайк от пользователя 1 фильму 1 уже существует"));
     }
 
+    @Test
+    void shouldReturnNotFoundForLikeWithUnknownUserOrFilm() throws Exception {
+        mockMvc.perform(put("/films/1/like/999"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Пользователь с ID 999 не найден"));
+
+        mockMvc.perform(put("/films/999/like/1"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Фильм с ID 999 не найден"));
+
+        mockMvc.perform(delete("/films/999/like/1"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void shouldRemoveLike() throws Exception {
         // Сначала добавим лайк, которого нет в data.sql
@@ -160,6 +214,56 @@ class FilmControllerIntegrationTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void shouldGetPopularFilmsByGenreAndYear() throws Exception {
+        // Лайки: 1 — 3, 2, 3 и 4 — по 2, 5 — 1; драма (2) у фильмов 1, 3, 4; 1994 год — у 2, 3, 4
+        mockMvc.perform(get("/films/popular").param("genreId", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(1, 3, 4)));
+        mockMvc.perform(get("/films/popular").param("year", "1994"))
+                .andExpect(jsonPath("$[*].id", contains(2, 3, 4)));
+        mockMvc.perform(get("/films/popular").param("genreId", "2").param("year", "1994").param("count", "1"))
+                .andExpect(jsonPath("$[*].id", contains(3)));
+        mockMvc.perform(get("/films/popular").param("genreId", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+        mockMvc.perform(get("/films/popular").param("genreId", "999"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void genreAndYearLeaderboardsShouldFollowLikesAndGenreChanges() throws Exception {
+        mockMvc.perform(put("/films/4/like/2"));
+        mockMvc.perform(put("/films/4/like/3"));
+        mockMvc.perform(get("/films/popular").param("genreId", "2"))
+                .andExpect(jsonPath("$[*].id", contains(4, 1, 3)));
+        mockMvc.perform(get("/films/popular").param("year", "1994"))
+                .andExpect(jsonPath("$[*].id", contains(4, 2, 3)));
+
+        // Фильм 4 меняет драму на комедию и 1994 год на 1995
+        Film film = new Film();
+        film.setId(4L);
+        film.setName("Побег из Шоушенка");
+        film.setDescription("История несправедливо осужденного банкира");
+        film.setReleaseDate(LocalDate.of(1995, 9, 10));
+        film.setDuration(142);
+        MpaRating mpa = new MpaRating();
+        mpa.setId(2L);
+        film.setMpa(mpa);
+        film.setGenres(new LinkedHashSet<>(List.of(new Genre(1L, null))));
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/popular").param("genreId", "2"))
+                .andExpect(jsonPath("$[*].id", contains(1, 3)));
+        mockMvc.perform(get("/films/popular").param("genreId", "1"))
+                .andExpect(jsonPath("$[*].id", contains(4, 2)));
+        mockMvc.perform(get("/films/popular").param("year", "1995"))
+                .andExpect(jsonPath("$[*].id", contains(4)));
+    }
+
     @Test
     void shouldGetPopularFilmsWithCorrectCount() throws Exception {
         // Проверяем, что возвращается именно 3 фильма
@@ -177,4 +281,42 @@ class FilmControllerIntegrationTest {
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$.length()").value(5)); // всего 5 фильмов в базе
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReflectNewLikesInPopularFilms() throws Exception {
+        // Фильм 5 в data.sql имеет один лайк, после трех новых он становится самым популярным
+        mockMvc.perform(put("/films/5/like/1"));
+        mockMvc.perform(put("/films/5/like/2"));
+        mockMvc.perform(put("/films/5/like/4"));
+
+        mockMvc.perform(get("/films/popular?count=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(5))
+                .andExpect(jsonPath("$[1].id").value(1));
+
+        mockMvc.perform(delete("/films/5/like/1"));
+        mockMvc.perform(delete("/films/5/like/2"));
+
+        mockMvc.perform(get("/films/popular?count=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    void deletedFilmShouldLeaveSearchFiltersAndPopular() throws Exception {
+        mockMvc.perform(delete("/films/3")).andExpect(status().isNoContent());
+        mockMvc.perform(delete("/films/2")).andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/films/3")).andExpect(status().isNotFound());
+        mockMvc.perform(delete("/films/3")).andExpect(status().isNotFound());
+
+        // Без снятия с индексов удаленный фильм занимал бы место на странице и в счетчиках
+        mockMvc.perform(get("/films/search").param("q", "история").param("limit", "1"))
+                .andExpect(jsonPath("$[*].id", contains(4)));
+        mockMvc.perform(get("/films/browse").param("genre", "2"))
+                .andExpect(jsonPath("$.films[*].id", contains(1, 4)))
+                .andExpect(jsonPath("$.total").value(2));
+        mockMvc.perform(get("/films/popular").param("count", "2"))
+                .andExpect(jsonPath("$[*].id", contains(1, 4)));
+    }
+}
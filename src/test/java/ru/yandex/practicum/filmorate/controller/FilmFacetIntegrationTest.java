@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.FilmFacetIndex;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Фильмы тестовых данных (год, MPA, жанры): 1 — 2014, 3, {2, 4}; 2 — 1994, 4, {1, 6};
+// 3 — 1994, 1, {2, 3}; 4 — 1994, 2, {2}; 5 — 2010, 3, {4, 6}
+@SpringBootTest
+@AutoConfigureMockMvc
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
+class FilmFacetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FilmFacetIndex facetIndex;
+
+    @Test
+    void shouldFilterByGenreAndCountFacets() throws Exception {
+        mockMvc.perform(get("/films/browse").param("genre", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.films[*].id", contains(1, 3, 4)))
+                .andExpect(jsonPath("$.films[0].mpa.name").exists())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.facets.genres.2").value(3))
+                .andExpect(jsonPath("$.facets.genres.3").value(1))
+                .andExpect(jsonPath("$.facets.genres.6").doesNotExist())
+                .andExpect(jsonPath("$.facets.mpa.3").value(1))
+                .andExpect(jsonPath("$.facets.years.1994").value(2))
+                .andExpect(jsonPath("$.facets.years.2014").value(1));
+    }
+
+    @Test
+    void shouldIntersectFilters() throws Exception {
+        mockMvc.perform(get("/films/browse").param("yearFrom", "1990").param("yearTo", "2000"))
+                .andExpect(jsonPath("$.films[*].id", contains(2, 3, 4)))
+                .andExpect(jsonPath("$.facets.mpa.4").value(1));
+
+        mockMvc.perform(get("/films/browse").param("yearFrom", "1990").param("yearTo", "2000").param("mpa", "1"))
+                .andExpect(jsonPath("$.films[*].id", contains(3)))
+                .andExpect(jsonPath("$.total").value(1));
+
+        mockMvc.perform(get("/films/browse").param("yearFrom", "2005").param("genre", "6"))
+                .andExpect(jsonPath("$.films[*].id", contains(5)));
+
+        mockMvc.perform(get("/films/browse").param("genre", "5"))
+                .andExpect(jsonPath("$.films").isEmpty())
+                .andExpect(jsonPath("$.total").value(0));
+    }
+
+    @Test
+    void shouldPageFilteredFilmsByKey() throws Exception {
+        mockMvc.perform(get("/films/browse").param("genre", "2").param("limit", "2"))
+                .andExpect(jsonPath("$.films[*].id", contains(1, 3)))
+                .andExpect(jsonPath("$.total").value(3));
+
+        mockMvc.perform(get("/films/browse").param("genre", "2").param("after", "3"))
+                .andExpect(jsonPath("$.films[*].id", contains(4)))
+                .andExpect(jsonPath("$.total").value(3));
+    }
+
+    @Test
+    void bitmapsShouldFollowFilmWrites() throws Exception {
+        Film film = new Film();
+        film.setName("Новый фильм");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2020, 1, 1));
+        film.setDuration(100);
+        MpaRating mpa = new MpaRating();
+        mpa.setId(1L);
+        film.setMpa(mpa);
+        Genre drama = new Genre();
+        drama.setId(2L);
+        film.setGenres(Set.of(drama));
+
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isOk());
+
+        // Фильм 4 теряет жанр 2 и переезжает в 2001 год
+        Genre comedy = new Genre();
+        comedy.setId(1L);
+        film.setId(4L);
+        film.setName("Побег из Шоушенка");
+        film.setReleaseDate(LocalDate.of(2001, 9, 10));
+        film.setGenres(Set.of(comedy));
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/browse").param("genre", "2"))
+                .andExpect(jsonPath("$.films[*].id", contains(1, 3, 6)))
+                .andExpect(jsonPath("$.facets.years.2020").value(1));
+        mockMvc.perform(get("/films/browse").param("yearFrom", "2001").param("yearTo", "2001"))
+                .andExpect(jsonPath("$.films[*].id", contains(4)))
+                .andExpect(jsonPath("$.facets.genres.1").value(1));
+    }
+
+    @Test
+    void shouldValidateFiltersAndKeepPlainListOnFilms() throws Exception {
+        mockMvc.perform(get("/films/browse").param("yearFrom", "2000").param("yearTo", "1990"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/browse").param("genre", "0"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/films/browse"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.films[*].id", contains(1, 2, 3, 4, 5)))
+                .andExpect(jsonPath("$.total").value(5));
+        mockMvc.perform(get("/films").param("genre", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5));
+    }
+
+    @Test
+    void pagingShouldStopAtLargestIntIdAndSkipLongerIds() throws Exception {
+        jdbcTemplate.execute("ALTER TABLE film ALTER COLUMN id RESTART WITH 2147483647");
+        Film film = new Film();
+        film.setName("Новый фильм");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2020, 1, 1));
+        film.setDuration(100);
+        MpaRating mpa = new MpaRating();
+        mpa.setId(1L);
+        film.setMpa(mpa);
+        Genre drama = new Genre();
+        drama.setId(2L);
+        film.setGenres(Set.of(drama));
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(film)))
+                    .andExpect(status().isOk());
+        }
+        facetIndex.rebuild();
+
+        // Фильм 2147483648 в карты не входит, а страница после 2147483647 не начинается заново с начала
+        mockMvc.perform(get("/films/browse").param("genre", "2").param("after", "4"))
+                .andExpect(jsonPath("$.films[*].id", contains(Integer.MAX_VALUE)))
+                .andExpect(jsonPath("$.total").value(4));
+        mockMvc.perform(get("/films/browse").param("genre", "2").param("after", "2147483647"))
+                .andExpect(jsonPath("$.films").isEmpty());
+    }
+}
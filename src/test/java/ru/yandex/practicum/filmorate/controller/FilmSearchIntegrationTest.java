@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// «История» есть в описаниях фильмов 3 (8 слов с учетом веса названия) и 4 (10 слов)
+@SpringBootTest
+@AutoConfigureMockMvc
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
+class FilmSearchIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void shouldRankMatchesByBm25() throws Exception {
+        // При равном числе вхождений выше более короткий текст
+        mockMvc.perform(get("/films/search").param("q", "история"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(3, 4)))
+                .andExpect(jsonPath("$[0].mpa.name").exists());
+
+        mockMvc.perform(get("/films/search").param("q", "Побег, ИСТОРИЯ!"))
+                .andExpect(jsonPath("$[*].id", contains(4, 3)));
+
+        mockMvc.perform(get("/films/search").param("q", "лев"))
+                .andExpect(jsonPath("$[*].id", contains(3)));
+    }
+
+    @Test
+    void shouldPageRankedResults() throws Exception {
+        mockMvc.perform(get("/films/search").param("q", "история").param("offset", "1").param("limit", "1"))
+                .andExpect(jsonPath("$[*].id", contains(4)));
+
+        mockMvc.perform(get("/films/search").param("q", "история").param("offset", "2"))
+                .andExpect(jsonPath("$", empty()));
+    }
+
+    @Test
+    void createdAndUpdatedFilmsShouldBeSearchable() throws Exception {
+        Film film = new Film();
+        film.setName("Ёлки");
+        film.setDescription("Новогодняя история");
+        film.setReleaseDate(LocalDate.of(2010, 12, 16));
+        film.setDuration(90);
+        MpaRating mpa = new MpaRating();
+        mpa.setId(1L);
+        film.setMpa(mpa);
+
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/search").param("q", "елки"))
+                .andExpect(jsonPath("$[*].id", contains(6)));
+
+        // Название весит вдвое больше описания: обновленный фильм 5 выходит на первое место
+        film.setId(5L);
+        film.setName("История снов");
+        film.setDescription("Специалист по краже секретов из снов");
+        mockMvc.perform(put("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/search").param("q", "история"))
+                .andExpect(jsonPath("$[0].id").value(5));
+        mockMvc.perform(get("/films/search").param("q", "начало"))
+                .andExpect(jsonPath("$", empty()));
+    }
+
+    @Test
+    void shouldValidateSearchParameters() throws Exception {
+        mockMvc.perform(get("/films/search").param("q", " ")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/search")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/search").param("q", "лев").param("limit", "101"))
+                .andExpect(status().isBadRequest());
+
+        // Запрос без слов — пустая выдача, а не ошибка
+        mockMvc.perform(get("/films/search").param("q", "?!"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", empty()));
+    }
+}
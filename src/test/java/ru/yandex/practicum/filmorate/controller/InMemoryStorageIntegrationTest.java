@@ -0,0 +1,190 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("inmemory")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class InMemoryStorageIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Test
+    void inMemoryProfileShouldUseInMemoryStorage() throws Exception {
+        assertThat(filmStorage).isInstanceOf(InMemoryFilmStorage.class);
+
+        mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    void likesFriendsAndPopularShouldWorkLikeDbStorage() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(user(i))))
+                    .andExpect(status().isOk());
+        }
+        for (int i = 1; i <= 2; i++) {
+            mockMvc.perform(post("/films")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(film(i))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.mpa.name").value("PG-13"))
+                    .andExpect(jsonPath("$.genres[0].id").value(1))
+                    .andExpect(jsonPath("$.genres[0].name").value("Комедия"));
+        }
+
+        mockMvc.perform(put("/films/2/like/1")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/2/like/2")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/1/like/3")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/2/like/1")).andExpect(status().isBadRequest());
+        mockMvc.perform(put("/films/1/like/99")).andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/films/popular").param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[1].id").value(1));
+
+        mockMvc.perform(put("/users/1/friends/3")).andExpect(status().isOk());
+        mockMvc.perform(put("/users/2/friends/3")).andExpect(status().isOk());
+        mockMvc.perform(put("/users/1/friends/99")).andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/users/1/friends/common/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+    }
+
+    @Test
+    void concurrentLikesShouldNotBeLost() throws Exception {
+        int userCount = 200;
+        for (int i = 1; i <= userCount; i++) {
+            userStorage.create(user(i));
+        }
+        Film first = filmService.create(film(1));
+        Film second = filmService.create(film(2));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long userId = 1; userId <= userCount; userId++) {
+                long id = userId;
+                futures.add(executor.submit(() -> filmService.addLike(first.getId(), id)));
+                if (id % 2 == 0) {
+                    futures.add(executor.submit(() -> filmService.addLike(second.getId(), id)));
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(filmStorage.findById(first.getId()).orElseThrow().getLikes()).hasSize(userCount);
+        assertThat(filmStorage.getLikeCounts()).containsEntry(second.getId(), userCount / 2);
+        assertThat(filmService.getPopularFilms(2)).extracting(Film::getId)
+                .containsExactly(first.getId(), second.getId());
+    }
+
+    @Test
+    void storageShouldReturnCopies() {
+        Film created = filmStorage.create(film(1));
+        created.setName("Изменено снаружи");
+        created.getLikes().add(42L);
+
+        Film stored = filmStorage.findById(created.getId()).orElseThrow();
+        assertThat(stored.getName()).isEqualTo("Фильм 1");
+        assertThat(stored.getLikes()).isEmpty();
+    }
+
+    @Test
+    void emailShouldStayUniqueLikeInDbStorage() {
+        User first = userStorage.create(user(1));
+        User second = userStorage.create(user(2));
+
+        assertThatThrownBy(() -> userStorage.create(user(1))).isInstanceOf(DuplicateKeyException.class);
+        assertThatThrownBy(() -> userStorage.createAll(List.of(user(3), user(2))))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(userStorage.findAll()).extracting(User::getId).containsExactly(first.getId(), second.getId());
+
+        second.setEmail(first.getEmail());
+        assertThatThrownBy(() -> userStorage.update(second)).isInstanceOf(DuplicateKeyException.class);
+        assertThat(userStorage.findById(second.getId()).orElseThrow().getEmail()).isEqualTo("user2@mail.ru");
+
+        // Освобожденный при смене адрес снова доступен
+        first.setEmail("renamed@mail.ru");
+        userStorage.update(first);
+        assertThat(userStorage.createAll(List.of(user(1), user(3)))).hasSize(2);
+    }
+
+    private static User user(int index) {
+        User user = new User();
+        user.setEmail("user" + index + "@mail.ru");
+        user.setLogin("user" + index);
+        user.setName("User " + index);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private static Film film(int index) {
+        Film film = new Film();
+        film.setName("Фильм " + index);
+        film.setDescription("Описание " + index);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        MpaRating mpa = new MpaRating();
+        mpa.setId(3L);
+        film.setMpa(mpa);
+        Genre genre = new Genre();
+        genre.setId(1L);
+        film.setGenres(Set.of(genre));
+        return film;
+    }
+}
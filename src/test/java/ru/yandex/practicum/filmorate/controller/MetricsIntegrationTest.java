@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Тестовый application.properties заменяет основной, поэтому настройки метрик задаются здесь
+@SpringBootTest(properties = {
+        "management.endpoints.web.exposure.include=prometheus",
+        "management.metrics.distribution.percentiles-histogram.http.server.requests=true",
+        "management.metrics.distribution.percentiles-histogram.filmorate.storage=true"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
+class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void storageCallsShouldBeTimedPerMethod() throws Exception {
+        mockMvc.perform(get("/films/popular")).andExpect(status().isOk());
+
+        assertThat(meterRegistry.find("filmorate.storage")
+                .tag("class", "FilmDbStorage")
+                .tag("method", "findAllByIds")
+                .timer())
+                .isNotNull()
+                .satisfies(timer -> assertThat(timer.count()).isPositive());
+    }
+
+    @Test
+    void storageCallsPerRequestShouldBeRecordedByUriTemplate() throws Exception {
+        // Проверка двух пользователей и выборка общих друзей
+        assertThat(storageCalls("/users/1/friends/common/2", "/users/{id}/friends/common/{otherId}")).isEqualTo(3);
+    }
+
+    @Test
+    void storageCallsPerRequestShouldNotGrowWithPageSize() throws Exception {
+        // Версия каталога, фильмы и их жанры; чтения справочников на каждую строку не учитываются
+        assertThat(storageCalls("/films/popular?count=1", "/films/popular")).isEqualTo(3);
+        assertThat(storageCalls("/films/popular?count=5", "/films/popular")).isEqualTo(3);
+    }
+
+    @Test
+    void prometheusEndpointShouldExposeRequestAndStorageHistograms() throws Exception {
+        mockMvc.perform(get("/films/popular")).andExpect(status().isOk());
+
+        String body = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(body)
+                .contains("http_server_requests_seconds_bucket")
+                .contains("uri=\"/films/popular\"")
+                .contains("filmorate_storage_seconds_bucket")
+                .contains("filmorate_storage_calls_per_request");
+    }
+
+    // Распределение общее для всех тестов контекста, поэтому берется прирост суммы за один запрос
+    private double storageCalls(String url, String uriTemplate) throws Exception {
+        double before = callsTotal(uriTemplate);
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        return callsTotal(uriTemplate) - before;
+    }
+
+    private double callsTotal(String uriTemplate) {
+        DistributionSummary summary = meterRegistry.find("filmorate.storage.calls.per.request")
+                .tag("uri", uriTemplate)
+                .summary();
+        return summary == null ? 0 : summary.totalAmount();
+    }
+}
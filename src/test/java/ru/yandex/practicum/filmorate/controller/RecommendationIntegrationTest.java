@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.FilmSimilarityIndex;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+// Лайки тестовых данных: фильм 1 — {1, 2, 3}, 2 — {1, 4}, 3 — {2, 3}, 4 — {1, 5}, 5 — {3}
+@SpringBootTest
+@AutoConfigureMockMvc
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
+class RecommendationIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FilmSimilarityIndex similarityIndex;
+
+    @Test
+    void similarFilmsShouldBeRankedByCosineOfCoLikes() throws Exception {
+        // 3: 2/sqrt(3*2), 5: 1/sqrt(3*1), 2 и 4: 1/sqrt(3*2) — равные оценки по возрастанию ID
+        mockMvc.perform(get("/films/1/similar"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(3, 5, 2, 4)))
+                .andExpect(jsonPath("$[0].mpa.name").exists());
+
+        mockMvc.perform(get("/films/1/similar").param("count", "2"))
+                .andExpect(jsonPath("$[*].id", contains(3, 5)));
+    }
+
+    @Test
+    void likesShouldUpdateSimilarityIncrementally() throws Exception {
+        mockMvc.perform(get("/films/3/similar"))
+                .andExpect(jsonPath("$[*].id", contains(1, 5)));
+
+        mockMvc.perform(put("/films/3/like/4")).andExpect(status().isOk());
+        mockMvc.perform(get("/films/3/similar"))
+                .andExpect(jsonPath("$[*].id", contains(1, 5, 2)));
+
+        mockMvc.perform(delete("/films/3/like/4")).andExpect(status().isNoContent());
+        mockMvc.perform(get("/films/3/similar"))
+                .andExpect(jsonPath("$[*].id", contains(1, 5)));
+    }
+
+    @Test
+    void recommendationsShouldSkipLikedFilmsAndFallBackToPopular() throws Exception {
+        // Пользователь 2 лайкнул 1 и 3: у фильма 5 сходство с обоими
+        mockMvc.perform(get("/users/2/recommendations"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(5, 2, 4)));
+
+        // Пользователь 4 лайкнул только 2: похожие 4 и 1, дальше популярные 3 и 5
+        mockMvc.perform(get("/users/4/recommendations"))
+                .andExpect(jsonPath("$[*].id", contains(4, 1, 3, 5)));
+        mockMvc.perform(get("/users/4/recommendations").param("count", "1"))
+                .andExpect(jsonPath("$[*].id", contains(4)));
+    }
+
+    @Test
+    void unknownFilmOrUserShouldReturnNotFound() throws Exception {
+        mockMvc.perform(get("/films/999/similar")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/999/recommendations")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/films/1/similar").param("count", "0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users/1/recommendations").param("count", "101")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void likesOfFilmsWithIdsBeyondIntShouldBeSkippedBySimilarity() throws Exception {
+        jdbcTemplate.execute("ALTER TABLE film ALTER COLUMN id RESTART WITH 2147483648");
+        Film film = new Film();
+        film.setName("Новый фильм");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2020, 1, 1));
+        film.setDuration(100);
+        MpaRating mpa = new MpaRating();
+        mpa.setId(1L);
+        film.setMpa(mpa);
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andExpect(jsonPath("$.id").value(2147483648L));
+
+        // Лайк записан и учтен в популярности, матрица совместных лайков его пропускает
+        mockMvc.perform(put("/films/2147483648/like/1")).andExpect(status().isOk());
+        mockMvc.perform(put("/films/2147483648/like/2")).andExpect(status().isOk());
+        mockMvc.perform(get("/films/1/similar"))
+                .andExpect(jsonPath("$[*].id", contains(3, 5, 2, 4)));
+        mockMvc.perform(get("/films/2147483648/similar"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+
+        similarityIndex.rebuild();
+        mockMvc.perform(get("/films/1/similar"))
+                .andExpect(jsonPath("$[*].id", contains(3, 5, 2, 4)));
+        mockMvc.perform(delete("/films/2147483648/like/1")).andExpect(status().isNoContent());
+    }
+}
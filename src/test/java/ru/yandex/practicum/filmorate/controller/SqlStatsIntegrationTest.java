@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "filmorate.sql.slow-request.max-statements=2",
+        "filmorate.sql.slow-request.max-time-ms=10000"
+})
+@AutoConfigureMockMvc
+@ExtendWith(OutputCaptureExtension.class)
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
+class SqlStatsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void allFilmsShouldNotFanOutPerFilm() throws Exception {
+        // Фильмы, жанры и лайки — по одному запросу независимо от размера каталога
+        MvcResult result = mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-Db-Time-Ms"))
+                .andReturn();
+
+        assertThat(Integer.parseInt(result.getResponse().getHeader("X-Db-Statements"))).isEqualTo(3);
+    }
+
+    @Test
+    void bodilessResponseShouldStillCarryStatementCount() throws Exception {
+        mockMvc.perform(put("/films/5/like/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-Db-Statements"));
+    }
+
+    @Test
+    void createFilmShouldNotReadItBack() throws Exception {
+        String film = "{\"name\": \"Фильм\", \"releaseDate\": \"2000-01-01\", \"duration\": 100, " +
+                "\"mpa\": {\"id\": 2}, \"genres\": [{\"id\": 3}, {\"id\": 1}]}";
+
+        // Вставка фильма и пакет жанров; MPA и названия жанров берутся из справочников в памяти
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(film))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Db-Statements", "2"))
+                .andExpect(jsonPath("$.mpa.name").value("PG"))
+                .andExpect(jsonPath("$.genres[0].name").value("Комедия"))
+                .andExpect(jsonPath("$.genres[1].name").value("Мультфильм"));
+    }
+
+    @Test
+    void statementsPerRequestShouldBeRecordedByUriTemplate() throws Exception {
+        mockMvc.perform(get("/films/1")).andExpect(status().isOk());
+
+        assertThat(meterRegistry.find("filmorate.sql.statements.per.request")
+                .tag("uri", "/films/{id}")
+                .summary())
+                .isNotNull()
+                .satisfies(summary -> assertThat(summary.max()).isPositive());
+    }
+
+    @Test
+    void requestAboveThresholdShouldLogOffendingSql(CapturedOutput output) throws Exception {
+        mockMvc.perform(get("/films")).andExpect(status().isOk());
+
+        assertThat(output.getOut())
+                .contains("Тяжелый запрос GET /films")
+                .contains("SELECT f.* FROM film f");
+    }
+}
@@ -6,18 +6,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendshipIndex;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
-@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/schema.sql", "/data.sql"})
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
 class UserControllerIntegrationTest {
 
     @Autowired
@@ -26,6 +39,18 @@ class UserControllerIntegrationTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FriendshipIndex friendshipIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void shouldCreateValidUser() throws Exception {
         User user = new User();
@@ -64,6 +89,30 @@ class UserControllerIntegrationTest {
                 .andExpect(jsonPath("$.length()").value(5));
     }
 
+    @Test
+    void shouldGetUsersPageAfterId() throws Exception {
+        mockMvc.perform(get("/users?after=3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(4))
+                .andExpect(jsonPath("$[0].friends[0]").value(1));
+    }
+
+    @Test
+    void shouldStreamUsersAsNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/users").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(body.trim().split("\n")).hasSize(5);
+    }
+
     @Test
     void shouldGetUserById() throws Exception {
         mockMvc.perform(get("/users/1"))
@@ -92,6 +141,102 @@ class UserControllerIntegrationTest {
                 .andExpect(jsonPath("$").isArray());
     }
 
+    @Test
+    void shouldReturnExactCommonFriends() throws Exception {
+        // В data.sql у пользователя 1 друзья 2 и 3, у пользователя 2 — друг 3
+        mockMvc.perform(get("/users/1/friends/common/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+
+        mockMvc.perform(put("/users/2/friends/5"));
+        mockMvc.perform(put("/users/1/friends/5"));
+
+        mockMvc.perform(get("/users/1/friends/common/2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(5));
+    }
+
+    @Test
+    void shouldSuggestFriendsOfFriendsByMutualCount() throws Exception {
+        // У пользователя 4 единственный друг 1, у которого друзья 2 и 3
+        mockMvc.perform(get("/users/4/friends/suggestions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(2, 3)));
+
+        // Теперь 3 — друг и у 1, и у 5, а 2 — только у 1
+        mockMvc.perform(put("/users/5/friends/3"));
+        mockMvc.perform(delete("/users/5/friends/2"));
+        mockMvc.perform(put("/users/4/friends/5"));
+
+        mockMvc.perform(get("/users/4/friends/suggestions"))
+                .andExpect(jsonPath("$[*].id", contains(3, 2)));
+        mockMvc.perform(get("/users/4/friends/suggestions").param("count", "1"))
+                .andExpect(jsonPath("$[*].id", contains(3)));
+
+        // Друзья друзей пользователя 1 — уже его друзья
+        mockMvc.perform(get("/users/1/friends/suggestions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", empty()));
+    }
+
+    @Test
+    void friendSuggestionsShouldHandleUserIdsBeyondInt() throws Exception {
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN id RESTART WITH 2147483648");
+        User user = new User();
+        user.setEmail("big@mail.ru");
+        user.setLogin("big");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(jsonPath("$.id").value(2147483648L));
+        mockMvc.perform(put("/users/1/friends/2147483648")).andExpect(status().isOk());
+        mockMvc.perform(put("/users/2147483648/friends/1")).andExpect(status().isOk());
+
+        // Большой ID — и кандидат, и исключаемый сам пользователь
+        mockMvc.perform(get("/users/4/friends/suggestions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(2, 3, 2147483648L)));
+        mockMvc.perform(get("/users/2147483648/friends/suggestions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(2, 3)));
+    }
+
+    @Test
+    void friendSuggestionsShouldStopAtFanOutCap() {
+        FriendshipIndex capped = new FriendshipIndex(userStorage, 1);
+        capped.rebuild();
+        capped.addFriend(4, 5);
+
+        // Сначала обходится менее связанный друг 5 с единственным другом 2, на нем лимит исчерпан
+        assertThat(capped.suggestions(4, 10)).containsExactly(2);
+        assertThat(capped.suggestions(3, 10)).isEmpty();
+    }
+
+    @Test
+    void friendSuggestionsShouldValidateUserAndCount() throws Exception {
+        mockMvc.perform(get("/users/999/friends/suggestions")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/1/friends/suggestions").param("count", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users/1/friends/suggestions").param("count", "101"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownFriend() throws Exception {
+        mockMvc.perform(put("/users/1/friends/999"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Пользователь с ID 999 не найден"));
+
+        mockMvc.perform(put("/users/999/friends/1"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(delete("/users/1/friends/999"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void shouldRemoveFriend() throws Exception {
         // Добавляем нового друга (пользователя 5)
@@ -109,6 +254,38 @@ class UserControllerIntegrationTest {
                 .andExpect(jsonPath("$.length()").value(2));
     }
 
+    @Test
+    void concurrentAddAndRemoveOfOnePairShouldKeepIndexInSyncWithStorage() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 50; round++) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    boolean add = i % 2 == 0;
+                    futures.add(executor.submit(() -> {
+                        if (add) {
+                            userService.addFriend(1L, 5L);
+                        } else {
+                            userService.removeFriend(1L, 5L);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+
+                boolean stored = userStorage.getFriends(1L).stream().anyMatch(user -> user.getId() == 5L);
+                boolean indexed = false;
+                for (long friendId : friendshipIndex.friendsOf(1L)) {
+                    indexed |= friendId == 5L;
+                }
+                assertThat(indexed).as("раунд %d", round).isEqualTo(stored);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     void shouldUseLoginAsNameWhenNameIsBlank() throws Exception {
         User user = new User();
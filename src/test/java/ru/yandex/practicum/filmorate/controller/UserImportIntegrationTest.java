@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "filmorate.import.chunk-size=2",
+        "filmorate.import.progress-every=2"
+})
+@AutoConfigureMockMvc
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
+class UserImportIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Test
+    void csvShouldImportUsersAndFriendshipsWithMappedIds() throws Exception {
+        String csv = """
+                type,id,email,login,name,birthday
+                user,101,anna@mail.ru,anna,"Анна, старший менеджер",1990-05-01
+                user,205,boris@mail.ru,boris,,1985-12-31
+                user,307,vera@mail.ru,vera,Вера,2001-07-15
+                user,400,gena@mail.ru,gena,Гена,
+                friend,101,205
+                friend,101,307
+                friend,307,101
+                friend,101,400
+                """;
+
+        mockMvc.perform(post("/users/import")
+                        .contentType("text/csv")
+                        .content(csv.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.records").value(8))
+                .andExpect(jsonPath("$.users").value(3))
+                .andExpect(jsonPath("$.friendships").value(3))
+                .andExpect(jsonPath("$.skipped").value(2))
+                .andExpect(jsonPath("$.errors[0]").value("Строка 5: Дата рождения должна быть указана"))
+                .andExpect(jsonPath("$.errors[1]")
+                        .value("Связь 101 -> 400: пользователь с исходным ID 400 не найден в файле"))
+                .andExpect(jsonPath("$.recordsPerSecond").exists());
+
+        User anna = userStorage.findById(6L).orElseThrow();
+        assertThat(anna.getName()).isEqualTo("Анна, старший менеджер");
+        assertThat(anna.getFriends()).containsExactlyInAnyOrder(7L, 8L);
+        assertThat(userStorage.findById(7L).orElseThrow().getName()).isEqualTo("boris");
+        assertThat(userStorage.findAll()).hasSize(8);
+
+        // Индекс дружбы в памяти обновлен без перестроения
+        mockMvc.perform(get("/users/8/friends"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].login").value("anna"));
+    }
+
+    @Test
+    void ndjsonShouldSkipInvalidRecordsAndReportThem() throws Exception {
+        String ndjson = """
+                {"type":"user","id":1,"email":"gleb@mail.ru","login":"gleb","birthday":"1999-01-01"}
+                {"type":"user","id":2,"email":"не почта","login":"dasha","birthday":"2000-02-02"}
+                {"type":"user","id":1,"email":"copy@mail.ru","login":"copy","birthday":"2000-02-02"}
+                {"type":"user","id":3,"email":"egor@mail.ru","login":"egor","birthday":"1970-10-10"}
+                не json
+                {"type":"friend","userId":1,"friendId":3}
+                {"type":"friend","userId":1,"friendId":2}
+                {"type":"friend","userId":3,"friendId":3}
+                {"type":"film","id":4}
+                """;
+
+        mockMvc.perform(post("/users/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.records").value(9))
+                .andExpect(jsonPath("$.users").value(2))
+                .andExpect(jsonPath("$.friendships").value(1))
+                .andExpect(jsonPath("$.skipped").value(6))
+                .andExpect(jsonPath("$.errors",
+                        hasItem("Строка 2: Электронная почта должна быть в правильном формате")))
+                .andExpect(jsonPath("$.errors", hasItem("Строка 3: пользователь с исходным ID 1 уже встречался")))
+                .andExpect(jsonPath("$.errors", hasItem("Строка 5: некорректный формат записи")))
+                .andExpect(jsonPath("$.errors", hasItem("Строка 8: Нельзя добавить самого себя в друзья")))
+                .andExpect(jsonPath("$.errors", hasItem("Строка 9: неизвестный тип записи 'film'")))
+                .andExpect(jsonPath("$.errors",
+                        hasItem("Связь 1 -> 2: пользователь с исходным ID 2 не найден в файле")));
+
+        assertThat(userStorage.findAll()).hasSize(7);
+        assertThat(userStorage.findById(6L).orElseThrow().getFriends()).containsExactly(7L);
+    }
+
+    @Test
+    void duplicateEmailsShouldSkipOnlyConflictingUsersAndTheirFriendships() throws Exception {
+        // Порции по два: в первой адрес занят пользователем из data.sql, во второй повторяется внутри порции
+        String csv = """
+                user,1,zhanna@mail.ru,zhanna,Жанна,1991-01-01
+                user,2,user1@example.com,klon,Клон,1992-02-02
+                user,3,ilya@mail.ru,ilya,Илья,1993-03-03
+                user,4,ilya@mail.ru,ilya2,Илья второй,1994-04-04
+                friend,1,3
+                friend,1,2
+                friend,4,3
+                """;
+
+        mockMvc.perform(post("/users/import")
+                        .contentType("text/csv")
+                        .content(csv.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.records").value(7))
+                .andExpect(jsonPath("$.users").value(2))
+                .andExpect(jsonPath("$.friendships").value(1))
+                .andExpect(jsonPath("$.skipped").value(4))
+                .andExpect(jsonPath("$.errors",
+                        hasItem("Пользователь с исходным ID 2: адрес user1@example.com уже занят")))
+                .andExpect(jsonPath("$.errors",
+                        hasItem("Пользователь с исходным ID 4: адрес ilya@mail.ru уже занят")))
+                .andExpect(jsonPath("$.errors",
+                        hasItem("Связь 1 -> 2: пользователь с исходным ID 2 не импортирован")))
+                .andExpect(jsonPath("$.errors",
+                        hasItem("Связь 4 -> 3: пользователь с исходным ID 4 не импортирован")));
+
+        assertThat(userStorage.findAll()).hasSize(7);
+        assertThat(userStorage.findById(1L).orElseThrow().getLogin()).isEqualTo("user1");
+        User zhanna = userStorage.findAll().stream()
+                .filter(user -> user.getLogin().equals("zhanna"))
+                .findFirst()
+                .orElseThrow();
+        User ilya = userStorage.findAll().stream()
+                .filter(user -> user.getLogin().equals("ilya"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(zhanna.getFriends()).containsExactly(ilya.getId());
+    }
+}
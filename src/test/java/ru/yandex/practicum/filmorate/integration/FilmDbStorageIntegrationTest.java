@@ -9,6 +9,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.test.context.jdbc.Sql;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
 import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
@@ -16,6 +17,8 @@ import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
 
 import java.time.LocalDate;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -25,7 +28,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 @Import({FilmDbStorage.class, GenreDbStorage.class, MpaDbStorage.class})
-@Sql(scripts = {"/schema.sql", "/data.sql"})
+@Sql(scripts = {"/cleanup.sql", "/data.sql"})
 class FilmDbStorageIntegrationTest {
 
     private final FilmDbStorage filmDbStorage;
@@ -86,6 +89,64 @@ class FilmDbStorageIntegrationTest {
         assertThat(updatedFilm.getMpa().getId()).isEqualTo(2L);
     }
 
+    @Test
+    public void testWriteResponseMatchesStoredFilm() {
+        Film film = new Film();
+        film.setName("Без перечитывания");
+        film.setReleaseDate(LocalDate.of(2010, 6, 1));
+        film.setDuration(95);
+        MpaRating mpa = new MpaRating();
+        mpa.setId(3L);
+        film.setMpa(mpa);
+        Set<Genre> genres = new LinkedHashSet<>();
+        genres.add(new Genre(4L, null));
+        genres.add(new Genre(1L, null));
+        genres.add(new Genre(4L, "Триллер"));
+        film.setGenres(genres);
+
+        // Ответ собирается из входных данных и справочников и совпадает с тем, что лежит в БД
+        Film created = filmDbStorage.create(film);
+        assertThat(created.getMpa().getName()).isEqualTo("PG-13");
+        assertThat(created.getGenres()).extracting(Genre::getName).containsExactly("Комедия", "Триллер");
+        assertThat(created).isEqualTo(filmDbStorage.findById(created.getId()).orElseThrow());
+
+        filmDbStorage.addLike(created.getId(), 1L);
+        created.setGenres(new LinkedHashSet<>(Set.of(new Genre(2L, null))));
+        created.setLikes(new HashSet<>());
+
+        Film updated = filmDbStorage.update(created);
+        assertThat(updated.getLikes()).containsExactly(1L);
+        assertThat(updated.getGenres()).extracting(Genre::getName).containsExactly("Драма");
+        assertThat(updated).isEqualTo(filmDbStorage.findById(created.getId()).orElseThrow());
+    }
+
+    @Test
+    public void testVersionsChangeOnEveryWrite() {
+        long initial = filmDbStorage.getVersion(1L).orElseThrow();
+        String catalog = filmDbStorage.getCatalogVersion();
+
+        filmDbStorage.addLike(1L, 4L);
+        long afterLike = filmDbStorage.getVersion(1L).orElseThrow();
+        assertThat(afterLike).isGreaterThan(initial);
+        assertThat(filmDbStorage.getVersion(2L)).isPresent();
+
+        // Лайк и отмена разных пользователей гасят счетчик, но состав лайков изменился
+        filmDbStorage.saveLikeChanges(List.of(new Like(1L, 5L)), List.of(new Like(1L, 1L)));
+        long afterBatch = filmDbStorage.getVersion(1L).orElseThrow();
+        assertThat(afterBatch).isGreaterThan(afterLike);
+
+        Film film = filmDbStorage.findById(1L).orElseThrow();
+        film.setDuration(film.getDuration() + 1);
+        filmDbStorage.update(film);
+        assertThat(filmDbStorage.getVersion(1L).orElseThrow()).isGreaterThan(afterBatch);
+
+        String beforeDelete = filmDbStorage.getCatalogVersion();
+        assertThat(beforeDelete).isNotEqualTo(catalog);
+        filmDbStorage.delete(5L);
+        assertThat(filmDbStorage.getCatalogVersion()).isNotEqualTo(beforeDelete);
+        assertThat(filmDbStorage.getVersion(5L)).isEmpty();
+    }
+
     @Test
     public void testFindAllFilms() {
         Film film1 = new Film();
@@ -109,6 +170,20 @@ class FilmDbStorageIntegrationTest {
         assertThat(films.size()).isGreaterThanOrEqualTo(7); // 5 из data.sql + 2 созданных
     }
 
+    @Test
+    public void testFindAllFilmsLoadsGenresLikesAndMpa() {
+        var films = filmDbStorage.findAll();
+
+        Film interstellar = films.stream()
+                .filter(f -> f.getId() == 1L)
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(interstellar.getMpa().getName()).isEqualTo("PG-13");
+        assertThat(interstellar.getGenres()).extracting(Genre::getId).containsExactly(2L, 4L);
+        assertThat(interstellar.getLikes()).containsExactlyInAnyOrder(1L, 2L, 3L);
+    }
+
     @Test
     public void testDeleteFilm() {
         Film film = new Film();
@@ -135,6 +210,24 @@ class FilmDbStorageIntegrationTest {
         assertThat(popularFilms.size()).isLessThanOrEqualTo(3);
     }
 
+    @Test
+    public void testGetPopularFilmsFollowsLikeCounter() {
+        // Фильм 5 в data.sql имеет один лайк; три новых лайка выводят его на первое место
+        filmDbStorage.addLike(5L, 1L);
+        filmDbStorage.addLike(5L, 2L);
+        filmDbStorage.addLike(5L, 4L);
+
+        var popularFilms = filmDbStorage.getPopularFilms(2);
+
+        assertThat(popularFilms).extracting(Film::getId).containsExactly(5L, 1L);
+        assertThat(popularFilms.get(0).getLikes()).hasSize(4);
+
+        filmDbStorage.removeLike(5L, 1L);
+        filmDbStorage.removeLike(5L, 2L);
+
+        assertThat(filmDbStorage.getPopularFilms(1)).extracting(Film::getId).containsExactly(1L);
+    }
+
     @Test
     public void testAddAndRemoveLike() {
         Long filmId = 1L;
@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.integration;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.service.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.service.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.service.FriendshipIndex;
+import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Запись, пришедшая в индекс во время перестройки, не должна теряться или учитываться дважды.
+// Хранилища переопределены так, чтобы изменение попадало между чтением БД и подменой снимка
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({GenreDbStorage.class, MpaDbStorage.class})
+@Sql(scripts = {"/cleanup.sql", "/data.sql"})
+class IndexRebuildIntegrationTest {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final GenreDbStorage genreDbStorage;
+    private final MpaDbStorage mpaDbStorage;
+
+    @Test
+    void likeArrivingDuringRebuildShouldBeCountedOnce() {
+        AtomicReference<FilmPopularityIndex> index = new AtomicReference<>();
+        FilmDbStorage storage = new FilmDbStorage(jdbcTemplate, genreDbStorage, mpaDbStorage, false) {
+            @Override
+            public Map<Long, Integer> getLikeCounts() {
+                // Лайк записан в БД до выборки, а в индекс приходит из другого потока уже после нее
+                addLike(5L, 1L);
+                Map<Long, Integer> counts = super.getLikeCounts();
+                CompletableFuture<Void> delta = CompletableFuture.runAsync(() -> index.get().changeLikes(5L, 1));
+                assertThat(delta).succeedsWithin(Duration.ofSeconds(5));
+                return counts;
+            }
+        };
+        index.set(new FilmPopularityIndex(storage));
+
+        index.get().rebuild();
+
+        // Лайки: 1 — 3, 2, 3, 4 и 5 — по 2; двойной учет поднял бы фильм 5 на второе место
+        assertThat(index.get().top(5)).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void likeCommittedBeforeReadShouldNotBeAppliedOnTopOfNewSnapshot() {
+        AtomicReference<FilmPopularityIndex> index = new AtomicReference<>();
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch rebuilt = new CountDownLatch(1);
+        AtomicReference<CompletableFuture<Void>> writer = new AtomicReference<>();
+        FilmDbStorage storage = new FilmDbStorage(jdbcTemplate, genreDbStorage, mpaDbStorage, false) {
+            @Override
+            public Map<Long, Integer> getLikeCounts() {
+                // Лайк уже в БД, а его запись в индекс задерживается до конца перестройки
+                addLike(5L, 1L);
+                writer.set(CompletableFuture.runAsync(() -> index.get().recordLikes(() -> {
+                    writing.countDown();
+                    try {
+                        rebuilt.await(500, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    index.get().changeLikes(5L, 1);
+                })));
+                try {
+                    assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return super.getLikeCounts();
+            }
+        };
+        index.set(new FilmPopularityIndex(storage));
+
+        index.get().rebuild();
+        rebuilt.countDown();
+        assertThat(writer.get()).succeedsWithin(Duration.ofSeconds(5));
+
+        // Подмена снимка дождалась записи, поэтому лайк учтен один раз
+        assertThat(index.get().top(5)).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void filmRemovedDuringRebuildShouldNotReturn() {
+        AtomicReference<FilmSearchIndex> searchIndex = new AtomicReference<>();
+        AtomicReference<FilmFacetIndex> facetIndex = new AtomicReference<>();
+        FilmDbStorage storage = new FilmDbStorage(jdbcTemplate, genreDbStorage, mpaDbStorage, false) {
+            @Override
+            public void forEach(Consumer<Film> consumer) {
+                super.forEach(consumer);
+                // Фильм удален после прохода по таблице, но до подмены снимка
+                if (searchIndex.get() != null) {
+                    searchIndex.get().remove(3L);
+                }
+                if (facetIndex.get() != null) {
+                    facetIndex.get().remove(3L);
+                }
+            }
+        };
+        searchIndex.set(new FilmSearchIndex(storage));
+        searchIndex.get().rebuild();
+        facetIndex.set(new FilmFacetIndex(storage));
+        facetIndex.get().rebuild();
+
+        assertThat(searchIndex.get().search("лев", 0, 10)).isEmpty();
+        assertThat(facetIndex.get().select(2L, null, null, null, 0, 10).filmIds()).containsExactly(1L, 4L);
+    }
+
+    @Test
+    void friendChangesDuringRebuildShouldNotBeLost() {
+        AtomicReference<FriendshipIndex> index = new AtomicReference<>();
+        UserDbStorage storage = new UserDbStorage(jdbcTemplate, false) {
+            @Override
+            public void forEachFriendship(BiConsumer<Long, Long> consumer) {
+                super.forEachFriendship(consumer);
+                // Изменения после прохода по таблице, но до подмены снимка
+                index.get().addFriend(1L, 5L);
+                index.get().removeFriend(1L, 2L);
+            }
+        };
+        index.set(new FriendshipIndex(storage, 100_000));
+
+        index.get().rebuild();
+
+        assertThat(index.get().friendsOf(1L)).containsExactly(3L, 5L);
+    }
+
+    @Test
+    void likeOfFilmUnknownToIndexShouldWaitForRebuild() {
+        FilmDbStorage storage = new FilmDbStorage(jdbcTemplate, genreDbStorage, mpaDbStorage, false);
+        FilmPopularityIndex index = new FilmPopularityIndex(storage);
+        index.rebuild();
+
+        // Фильм записан в БД мимо индекса, как это делает другой узел
+        Film film = new Film();
+        film.setName("Фильм другого узла");
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2020, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new MpaRating(1L, null, null));
+        film.setGenres(Set.of(new Genre(2L, null)));
+        long filmId = storage.create(film).getId();
+        storage.addLike(filmId, 1L);
+        index.changeLikes(filmId, 1);
+
+        assertThat(index.top(10, null, 0)).isEmpty();
+        assertThat(index.top(10)).doesNotContain(filmId);
+
+        index.rebuild();
+        assertThat(index.top(10, 2L, 2020)).containsExactly(filmId);
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// События одной пары в одном пакете: итог должен совпадать с поочередной прямой записью.
+// В режиме ENQUEUE вызовы не ждут записи, поэтому последовательность можно поставить в очередь,
+// пока поток записи занят
+@SpringBootTest(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.durability=ENQUEUE",
+        "filmorate.likes.write-behind.flush-interval-ms=20"
+})
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
+class LikeWriteBehindEnqueueIntegrationTest {
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void unlikeThenLikeWithoutExistingLikeShouldStoreLike() throws InterruptedException {
+        enqueueAsOneBatch(() -> {
+            filmService.removeLike(5L, 1L);
+            filmService.addLike(5L, 1L);
+        });
+        awaitQueueDrained();
+
+        assertThat(likeExists(5L, 1L)).isTrue();
+        assertThat(likeCount(5L)).isEqualTo(2);
+    }
+
+    @Test
+    void likeThenUnlikeOfExistingLikeShouldRemoveLike() throws InterruptedException {
+        enqueueAsOneBatch(() -> {
+            filmService.addLike(1L, 1L);
+            filmService.removeLike(1L, 1L);
+        });
+        awaitQueueDrained();
+
+        assertThat(likeExists(1L, 1L)).isFalse();
+        assertThat(likeCount(1L)).isEqualTo(2);
+    }
+
+    @Test
+    void lastUnlikeShouldWinOverRepeatedLikes() throws InterruptedException {
+        enqueueAsOneBatch(() -> {
+            filmService.addLike(5L, 2L);
+            filmService.addLike(5L, 2L);
+            filmService.removeLike(5L, 2L);
+        });
+        awaitQueueDrained();
+
+        assertThat(likeExists(5L, 2L)).isFalse();
+        assertThat(likeCount(5L)).isEqualTo(1);
+    }
+
+    // Пока тест держит блокировку строки фильма 4, поток записи стоит на лайке этому фильму,
+    // а события последовательности копятся в очереди и уходят следующим пакетом
+    private void enqueueAsOneBatch(Runnable events) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE film SET like_count = like_count WHERE id = 4");
+            filmService.addLike(4L, 2L);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.run();
+        });
+    }
+
+    // Очередь упорядочена: когда записан лайк, поставленный последним, записаны и все предыдущие
+    private void awaitQueueDrained() throws InterruptedException {
+        filmService.addLike(2L, 2L);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!likeExists(2L, 2L)) {
+            assertThat(System.currentTimeMillis()).as("лайк-маркер не записан за 5 секунд").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private boolean likeExists(long filmId, long userId) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes WHERE film_id = ? AND user_id = ?",
+                Integer.class, filmId, userId);
+        return count != null && count > 0;
+    }
+
+    private int likeCount(long filmId) {
+        return jdbcTemplate.queryForObject("SELECT like_count FROM film WHERE id = ?", Integer.class, filmId);
+    }
+}
@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate.integration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceOverloadedException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.service.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FilmSimilarityIndex;
+import ru.yandex.practicum.filmorate.service.LikeWriteBehindQueue;
+import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.durability=FLUSH",
+        "filmorate.likes.write-behind.flush-interval-ms=20"
+})
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = {"/cleanup.sql", "/data.sql"})
+class LikeWriteBehindIntegrationTest {
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GenreDbStorage genreDbStorage;
+
+    @Autowired
+    private MpaDbStorage mpaDbStorage;
+
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+
+    @Autowired
+    private FilmSimilarityIndex similarityIndex;
+
+    @Test
+    void shouldPersistBurstOfLikesAndUpdateCounters() {
+        // Фильм 5 в data.sql лайкнул только пользователь 3
+        List<CompletableFuture<Void>> likes = List.of(1L, 2L, 4L, 5L).stream()
+                .map(userId -> CompletableFuture.runAsync(() -> filmService.addLike(5L, userId)))
+                .toList();
+        likes.forEach(CompletableFuture::join);
+
+        Integer likeCount = jdbcTemplate.queryForObject("SELECT like_count FROM film WHERE id = 5", Integer.class);
+        assertThat(likeCount).isEqualTo(5);
+        assertThat(filmService.getPopularFilms(1)).extracting(Film::getId).containsExactly(5L);
+    }
+
+    @Test
+    void shouldReportErrorsToCallerInFlushMode() {
+        assertThatThrownBy(() -> filmService.addLike(1L, 1L))
+                .isInstanceOf(ValidationException.class);
+
+        assertThatThrownBy(() -> filmService.addLike(1L, 999L))
+                .isInstanceOf(NotFoundException.class);
+
+        filmService.removeLike(1L, 1L);
+
+        Integer likeCount = jdbcTemplate.queryForObject("SELECT like_count FROM film WHERE id = 1", Integer.class);
+        assertThat(likeCount).isEqualTo(2);
+    }
+
+    @Test
+    void likeAndUnlikeOfMissingFilmShouldBothFailWhenBatchedTogether() {
+        // Лайк и отмена одной пары в одном пакете не должны погашать друг друга молча
+        CompletableFuture<Void> like = CompletableFuture.runAsync(() -> filmService.addLike(999L, 1L));
+        CompletableFuture<Void> unlike = CompletableFuture.runAsync(() -> filmService.removeLike(999L, 1L));
+
+        assertThatThrownBy(like::join).hasCauseInstanceOf(NotFoundException.class);
+        assertThatThrownBy(unlike::join).hasCauseInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void interruptedFlusherShouldFailPendingLikesAndRejectNewOnes() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Thread> flusher = new AtomicReference<>();
+        FilmDbStorage storage = new FilmDbStorage(jdbcTemplate, genreDbStorage, mpaDbStorage, false) {
+            @Override
+            public List<Like> saveLikeChanges(List<Like> added, List<Like> removed) {
+                flusher.set(Thread.currentThread());
+                writing.countDown();
+                // Прерывание восстанавливается после записи: текущий пакет дописывается,
+                // а поток завершается на следующем ожидании очереди
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        release.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                List<Like> result = super.saveLikeChanges(added, removed);
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return result;
+            }
+        };
+        // Таймаут ожидания больше таймаута теста: зависшее событие не успело бы завершиться само
+        LikeWriteBehindQueue queue = new LikeWriteBehindQueue(storage, popularityIndex, similarityIndex,
+                100, 500, 5, 50, TimeUnit.MINUTES.toMillis(1), LikeWriteBehindQueue.Durability.FLUSH, false);
+        try {
+            CompletableFuture<Void> written = CompletableFuture.runAsync(() -> queue.addLike(1L, 4L));
+            assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<Void> pending = CompletableFuture.runAsync(() -> queue.addLike(2L, 2L));
+
+            flusher.get().interrupt();
+            release.countDown();
+
+            assertThat(written).succeedsWithin(Duration.ofSeconds(5));
+            assertThat(pending).failsWithin(Duration.ofSeconds(5))
+                    .withThrowableThat().havingCause().isInstanceOf(ServiceOverloadedException.class);
+            assertThatThrownBy(() -> queue.addLike(3L, 4L)).isInstanceOf(ServiceOverloadedException.class);
+        } finally {
+            release.countDown();
+            queue.shutdown();
+        }
+    }
+}
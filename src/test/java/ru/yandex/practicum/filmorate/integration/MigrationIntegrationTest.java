@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.integration;
+
+import lombok.RequiredArgsConstructor;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(scripts = {"/cleanup.sql", "/data.sql"})
+class MigrationIntegrationTest {
+
+    private final Flyway flyway;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testRepeatedStartupDoesNotRebuildDatabase() {
+        // Повторный запуск миграций, как при перезапуске приложения: ничего не выполняется, данные на месте
+        assertThat(flyway.migrate().migrationsExecuted).isZero();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class)).isEqualTo(5);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film", Integer.class)).isEqualTo(5);
+    }
+
+    @Test
+    public void testReferenceDataSeededOnce() {
+        assertThat(flyway.info().applied())
+                .extracting(MigrationInfo::getDescription)
+                .containsOnlyOnce("reference data");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mpa_ratings", Integer.class)).isEqualTo(5);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Integer.class)).isEqualTo(6);
+    }
+}
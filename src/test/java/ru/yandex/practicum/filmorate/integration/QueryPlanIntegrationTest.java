@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.integration;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Планы горячих запросов хранилищ: каждый должен идти по индексу, а не полным проходом по таблице
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Sql(scripts = {"/cleanup.sql", "/data.sql"})
+class QueryPlanIntegrationTest {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testFilmQueriesUseIndexes() {
+        assertUsesIndex("SELECT f.* FROM film f WHERE f.id = 1", "PRIMARY_KEY");
+        assertUsesIndex("SELECT f.* FROM film f WHERE f.id > 0 ORDER BY f.id LIMIT 100", "PRIMARY_KEY");
+        assertUsesIndex("SELECT f.* FROM film f ORDER BY f.like_count DESC, f.id LIMIT 10", "IDX_FILM_LIKE_COUNT");
+        assertUsesIndex("SELECT film_id, genre_id FROM film_genres WHERE film_id IN (1, 2) " +
+                "ORDER BY film_id, genre_id", "PRIMARY_KEY");
+        assertUsesIndex("SELECT film_id, genre_id FROM film_genres ORDER BY film_id, genre_id", "PRIMARY_KEY");
+        assertUsesIndex("SELECT film_id, user_id FROM likes WHERE film_id IN (1, 2)", "PRIMARY_KEY");
+        assertUsesIndex("SELECT version FROM film WHERE id = 1", "PRIMARY_KEY");
+        // Версия каталога для ETag: MAX и COUNT берутся из индекса и метаданных таблицы
+        assertUsesIndex("SELECT COALESCE(MAX(version), 0), COUNT(*) FROM film", "direct lookup");
+    }
+
+    @Test
+    public void testUserQueriesUseIndexes() {
+        assertUsesIndex("SELECT * FROM users WHERE id = 1", "PRIMARY_KEY");
+        // H2 выбирает между первичным ключом и индексом внешнего ключа по user_id, подходят оба
+        assertIndexScan("SELECT friend_id FROM friendships WHERE user_id = 1 AND status = 'CONFIRMED'");
+    }
+
+    @Test
+    public void testReverseLookupsUseSecondaryIndexes() {
+        assertUsesIndex("SELECT film_id FROM likes WHERE user_id = 1", "IDX_LIKES_USER_FILM");
+        assertUsesIndex("SELECT user_id, film_id FROM likes ORDER BY user_id, film_id", "IDX_LIKES_USER_FILM");
+        assertUsesIndex("SELECT user_id FROM friendships WHERE friend_id = 2", "IDX_FRIENDSHIPS_FRIEND_USER");
+        assertUsesIndex("SELECT film_id FROM film_genres WHERE genre_id = 2", "IDX_FILM_GENRES_GENRE_FILM");
+        assertUsesIndex("SELECT id FROM film WHERE release_date BETWEEN DATE '1994-01-01' AND DATE '1994-12-31'",
+                "IDX_FILM_RELEASE_DATE");
+    }
+
+    private void assertUsesIndex(String sql, String indexName) {
+        assertThat(assertIndexScan(sql))
+                .as("План запроса %s", sql)
+                .containsIgnoringCase(indexName);
+    }
+
+    private String assertIndexScan(String sql) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        assertThat(plan)
+                .as("План запроса %s", sql)
+                .doesNotContainIgnoringCase("tableScan");
+        return plan;
+    }
+}
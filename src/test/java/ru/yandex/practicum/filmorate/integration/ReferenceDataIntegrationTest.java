@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.integration;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.MpaDbStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Import({GenreDbStorage.class, MpaDbStorage.class})
+@Sql(scripts = {"/cleanup.sql", "/data.sql"})
+class ReferenceDataIntegrationTest {
+
+    private final GenreDbStorage genreDbStorage;
+    private final MpaDbStorage mpaDbStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testReferenceDataLookups() {
+        assertThat(mpaDbStorage.getAllMpaRatings()).hasSize(5);
+        assertThat(mpaDbStorage.getMpaById(3L)).map(MpaRating::getName).hasValue("PG-13");
+        assertThat(mpaDbStorage.getMpaById(99L)).isEmpty();
+
+        assertThat(genreDbStorage.getAllGenres()).extracting(Genre::getId).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(genreDbStorage.getGenreById(1L)).map(Genre::getName).hasValue("Комедия");
+        assertThat(genreDbStorage.existsById(0L)).isFalse();
+    }
+
+    @Test
+    public void testReturnedObjectsDoNotChangeSnapshot() {
+        genreDbStorage.getGenreById(1L).orElseThrow().setName("Изменено");
+        mpaDbStorage.getAllMpaRatings().get(0).setName("Изменено");
+
+        assertThat(genreDbStorage.getGenreById(1L)).map(Genre::getName).hasValue("Комедия");
+        assertThat(mpaDbStorage.getMpaById(1L)).map(MpaRating::getName).hasValue("G");
+    }
+
+    @Test
+    public void testRefreshPicksUpNewRows() {
+        genreDbStorage.getAllGenres();
+        jdbcTemplate.update("INSERT INTO genres (name) VALUES ('Фантастика')");
+
+        assertThat(genreDbStorage.existsById(7L)).isFalse();
+
+        genreDbStorage.refresh();
+
+        assertThat(genreDbStorage.getGenreById(7L)).map(Genre::getName).hasValue("Фантастика");
+
+        jdbcTemplate.update("DELETE FROM genres WHERE id = 7");
+        genreDbStorage.refresh();
+    }
+}
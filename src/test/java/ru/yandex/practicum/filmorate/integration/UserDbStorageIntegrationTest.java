@@ -19,7 +19,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 @Import(UserDbStorage.class)
-@Sql(scripts = {"/schema.sql", "/data.sql"})
+@Sql(scripts = {"/cleanup.sql", "/data.sql"})
 class UserDbStorageIntegrationTest {
 
     private final UserDbStorage userDbStorage;
@@ -71,6 +71,18 @@ class UserDbStorageIntegrationTest {
         assertThat(updatedUser.getBirthday()).isEqualTo(LocalDate.of(1995, 1, 1));
     }
 
+    @Test
+    public void testUpdateResponseMatchesStoredUser() {
+        User user = userDbStorage.findById(1L).orElseThrow();
+        user.setName("Переименован");
+        user.getFriends().clear();
+
+        // Друзья в ответе берутся из БД, остальные поля — из входных данных
+        User updated = userDbStorage.update(user);
+        assertThat(updated.getFriends()).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(updated).isEqualTo(userDbStorage.findById(1L).orElseThrow());
+    }
+
     @Test
     public void testFindAllUsers() {
         User user1 = new User();
@@ -0,0 +1,9 @@
+-- Очистка данных перед тестом: схему и справочники создают миграции Flyway,
+-- счетчики ID сбрасываются, чтобы data.sql получал ID с единицы
+SET REFERENTIAL_INTEGRITY FALSE;
+TRUNCATE TABLE film_genres;
+TRUNCATE TABLE likes;
+TRUNCATE TABLE friendships;
+TRUNCATE TABLE film RESTART IDENTITY;
+TRUNCATE TABLE users RESTART IDENTITY;
+SET REFERENTIAL_INTEGRITY TRUE;
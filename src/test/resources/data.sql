@@ -1,19 +1,4 @@
--- Заполнение таблицы рейтингов MPA (американская система)
-INSERT INTO mpa_ratings (code, name, description) VALUES
-('G', 'G', 'Нет возрастных ограничений'),
-('PG', 'PG', 'Рекомендуется присутствие родителей'),
-('PG-13', 'PG-13', 'Детям до 13 лет просмотр нежелателен'),
-('R', 'R', 'Лицам до 17 лет обязательно присутствие взрослого'),
-('NC-17', 'NC-17', 'Лицам до 18 лет просмотр запрещён');
-
--- Заполнение таблицы жанров
-INSERT INTO genres (name) VALUES
-('Комедия'),
-('Драма'),
-('Мультфильм'),
-('Триллер'),
-('Документальный'),
-('Боевик');
+-- Демонстрационные данные для тестов; справочники MPA и жанров создает миграция R__reference_data.sql
 
 -- Заполнение таблицы пользователей (примерные данные)
 INSERT INTO users (email, login, name, birthday) VALUES
@@ -44,6 +29,9 @@ INSERT INTO likes (film_id, user_id) VALUES
 (4, 5),  -- Побег из Шоушенка, user5
 (5, 3);  -- Начало, user3
 
+-- Пересчет счетчиков лайков по загруженным данным
+UPDATE film SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = film.id);
+
 -- Заполнение таблицы дружбы (примерные данные для односторонней дружбы)
 INSERT INTO friendships (user_id, friend_id, status) VALUES
 (1, 2, 'CONFIRMED'),  -- Пользователь 1 добавил пользователя 2 в друзья